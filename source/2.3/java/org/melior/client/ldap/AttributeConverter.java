@@ -0,0 +1,59 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+
+/**
+ * Converts between the value of an LDAP attribute and the value of a member of an
+ * entity type.  The LDAP value is a {@code String}, or a {@code byte[]} for attributes
+ * that are retrieved as binary.  A converter converts single values; the values of a
+ * multi-valued attribute that is mapped to a {@code List} or {@code Set} member are
+ * converted one at a time.
+ * <p>
+ * Converters are resolved once per member, when the mapping plan of the entity type is
+ * built, and are called for every value that is mapped, so they should not allocate more
+ * than the converted value itself.  Converters must be thread-safe.
+ * @author Melior
+ * @since 2.3
+ * @see AttributeConverters
+ * @param <V> The type of the member value
+ */
+public interface AttributeConverter<V> {
+
+    /**
+     * Convert LDAP value to member value.
+     * @param value The LDAP value, which is never null
+     * @return The member value
+     * @throws IllegalArgumentException if the LDAP value cannot be converted
+     */
+    V decode(
+        final Object value);
+
+    /**
+     * Convert member value to LDAP value.
+     * @param value The member value, which is never null
+     * @return The LDAP value, which must be a {@code String} or a {@code byte[]}
+     */
+    Object encode(
+        final V value);
+
+    /**
+     * Convert member value to LDAP value, in the form in which the attribute is declared.
+     * Converters that encode values in the same form for every attribute need not
+     * override this method.
+     * @param value The member value, which is never null
+     * @param binary true if the attribute is declared binary, false otherwise
+     * @return The LDAP value, which must be a {@code String} or a {@code byte[]}
+     */
+    default Object encode(
+        final V value,
+        final boolean binary) {
+        return encode(value);
+    }
+
+}
@@ -0,0 +1,664 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Registry of the {@code AttributeConverter} instances that convert between LDAP values
+ * and the members of entity types.  Converters are provided for strings, primitives and
+ * boxed numbers, booleans, characters, {@code BigInteger}, {@code BigDecimal}, {@code Instant} from
+ * GeneralizedTime, {@code byte[]}, {@code UUID} and enums.  Members of any other type
+ * receive the LDAP value as is.
+ * <p>
+ * A {@code UUID} is decoded from its string form, or from the 16 bytes of a binary
+ * attribute such as the Active Directory {@code objectGUID}, which holds the first three
+ * groups of the UUID in little-endian order.  A {@code UUID} is encoded in the same form,
+ * that is in its 16 byte form for attributes that are declared binary, and in its string
+ * form, as for the OpenLDAP {@code entryUUID}, otherwise.
+ * <p>
+ * Members of primitive types are decoded without boxing, straight from the characters or
+ * bytes of the LDAP value, unless another converter has been registered for the type.
+ * <p>
+ * Additional converters may be registered for application types.  A converter must be
+ * registered before the entity types that use it are first mapped.
+ * @author Melior
+ * @since 2.3
+ * @see AttributeConverter
+ */
+public final class AttributeConverters {
+
+    private static final Map<Class<?>, AttributeConverter<?>> converters = new ConcurrentHashMap<Class<?>, AttributeConverter<?>>();
+
+    private static final Map<Class<?>, AttributeConverter<?>> primitiveConverters = new HashMap<Class<?>, AttributeConverter<?>>();
+
+    private static final AttributeConverter<Object> identity = of(value -> value, value -> value);
+
+    static {
+
+        AttributeConverter<Integer> integerConverter = of(value -> Integer.valueOf((int) decodeLong(value, int.class)), String::valueOf);
+        AttributeConverter<Long> longConverter = of(value -> Long.valueOf(decodeLong(value, long.class)), String::valueOf);
+        AttributeConverter<Short> shortConverter = of(value -> Short.valueOf((short) decodeLong(value, short.class)), String::valueOf);
+        AttributeConverter<Byte> byteConverter = of(value -> Byte.valueOf((byte) decodeLong(value, byte.class)), String::valueOf);
+        AttributeConverter<Double> doubleConverter = of(value -> Double.valueOf(decodeDouble(value, double.class)), String::valueOf);
+        AttributeConverter<Float> floatConverter = of(value -> Float.valueOf((float) decodeDouble(value, float.class)), String::valueOf);
+        AttributeConverter<Character> characterConverter = of(AttributeConverters::decodeCharacter, String::valueOf);
+        AttributeConverter<Boolean> booleanConverter = of(value -> Boolean.valueOf(decodeBoolean(value)), value -> (value.booleanValue() == true) ? "TRUE" : "FALSE");
+
+        register(String.class, of(AttributeConverters::toString, value -> value));
+        register(Integer.class, integerConverter);
+        register(int.class, integerConverter);
+        register(Long.class, longConverter);
+        register(long.class, longConverter);
+        register(Short.class, shortConverter);
+        register(short.class, shortConverter);
+        register(Byte.class, byteConverter);
+        register(byte.class, byteConverter);
+        register(Double.class, doubleConverter);
+        register(double.class, doubleConverter);
+        register(Float.class, floatConverter);
+        register(float.class, floatConverter);
+        register(Boolean.class, booleanConverter);
+        register(boolean.class, booleanConverter);
+        register(Character.class, characterConverter);
+        register(char.class, characterConverter);
+        register(BigInteger.class, of(value -> new BigInteger(toString(value).trim()), BigInteger::toString));
+        register(BigDecimal.class, of(value -> new BigDecimal(toString(value).trim()), BigDecimal::toPlainString));
+        register(Instant.class, of(value -> decodeGeneralizedTime(toString(value)), AttributeConverters::encodeGeneralizedTime));
+        register(byte[].class, of(AttributeConverters::toBytes, value -> value));
+        register(UUID.class, createUuidConverter());
+        register(Object.class, identity);
+
+        for (Class<?> type : new Class<?>[] {int.class, long.class, short.class, byte.class, double.class, float.class, boolean.class}) {
+            primitiveConverters.put(type, converters.get(type));
+        }
+
+    }
+
+    /**
+     * Constructor.
+     */
+    private AttributeConverters() {
+
+        super();
+    }
+
+    /**
+     * Register converter for type.  Replaces any converter that is registered for the type.
+     * @param <V> The type
+     * @param type The type
+     * @param converter The converter
+     */
+    public static <V> void register(
+        final Class<V> type,
+        final AttributeConverter<V> converter) {
+        converters.put(type, converter);
+    }
+
+    /**
+     * Get converter for type.
+     * @param <V> The type
+     * @param type The type
+     * @return The converter that is registered for the type, a converter that converts
+     * by constant name if the type is an enum, or a converter that passes the LDAP
+     * value through as is otherwise
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <V> AttributeConverter<V> get(
+        final Class<V> type) {
+
+        AttributeConverter<?> converter;
+
+        converter = converters.get(type);
+
+        if (converter != null) {
+            return (AttributeConverter<V>) converter;
+        }
+
+        if (type.isEnum() == true) {
+            return (AttributeConverter<V>) converters.computeIfAbsent(type, enumType -> createEnumConverter((Class<Enum>) enumType));
+        }
+
+        return (AttributeConverter<V>) identity;
+    }
+
+    /**
+     * Check whether members of type are decoded without boxing, which is the case for the
+     * primitive types, as long as their built-in converter has not been replaced.
+     * @param type The type
+     * @return true if members of the type are decoded without boxing, false otherwise
+     */
+    static boolean hasPrimitivePath(
+        final Class<?> type) {
+        return (primitiveConverters.containsKey(type) == true) && (converters.get(type) == primitiveConverters.get(type));
+    }
+
+    /**
+     * Create converter from a pair of functions.
+     * @param <V> The type
+     * @param decoder The function that converts an LDAP value to a member value
+     * @param encoder The function that converts a member value to an LDAP value
+     * @return The converter
+     */
+    private static <V> AttributeConverter<V> of(
+        final Function<Object, V> decoder,
+        final Function<V, Object> encoder) {
+
+        return new AttributeConverter<V>() {
+
+            public V decode(
+                final Object value) {
+                return decoder.apply(value);
+            }
+
+            public Object encode(
+                final V value) {
+                return encoder.apply(value);
+            }
+
+        };
+    }
+
+    /**
+     * Create converter for UUID type.  The encoded form depends on whether the attribute
+     * is declared binary.
+     * @return The converter
+     */
+    private static AttributeConverter<UUID> createUuidConverter() {
+
+        return new AttributeConverter<UUID>() {
+
+            public UUID decode(
+                final Object value) {
+                return decodeUuid(value);
+            }
+
+            public Object encode(
+                final UUID value) {
+                return value.toString();
+            }
+
+            public Object encode(
+                final UUID value,
+                final boolean binary) {
+                return (binary == true) ? encodeUuid(value) : value.toString();
+            }
+
+        };
+    }
+
+    /**
+     * Create converter for enum type.  The constants are looked up by name, and then
+     * by upper case name, in a table that is built once.
+     * @param <E> The enum type
+     * @param enumType The enum type
+     * @return The converter
+     */
+    private static <E extends Enum<E>> AttributeConverter<E> createEnumConverter(
+        final Class<E> enumType) {
+
+        Map<String, E> constants;
+
+        constants = new HashMap<String, E>();
+
+        for (E constant : enumType.getEnumConstants()) {
+            constants.put(constant.name(), constant);
+        }
+
+        return of(value -> {
+
+            String name = toString(value);
+            E constant = constants.get(name);
+
+            if (constant == null) {
+                constant = constants.get(name.trim().toUpperCase(Locale.ROOT));
+            }
+
+            if (constant == null) {
+                throw new IllegalArgumentException("No constant " + name + " in " + enumType.getName());
+            }
+
+            return constant;
+        }, Enum::name);
+    }
+
+    /**
+     * Convert LDAP value to string.
+     * @param value The LDAP value
+     * @return The string
+     */
+    private static String toString(
+        final Object value) {
+        return (value instanceof byte[]) ? new String((byte[]) value, StandardCharsets.UTF_8) : value.toString();
+    }
+
+    /**
+     * Decode character from LDAP value, which must hold a single character.
+     * @param value The LDAP value
+     * @return The character
+     * @throws IllegalArgumentException if the LDAP value does not hold a single character
+     */
+    private static Character decodeCharacter(
+        final Object value) {
+
+        String string;
+
+        string = toString(value);
+
+        if (string.length() != 1) {
+            throw new IllegalArgumentException("Invalid character: " + string);
+        }
+
+        return Character.valueOf(string.charAt(0));
+    }
+
+    /**
+     * Convert LDAP value to bytes.
+     * @param value The LDAP value
+     * @return The bytes
+     */
+    private static byte[] toBytes(
+        final Object value) {
+        return (value instanceof byte[]) ? (byte[]) value : value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get character of LDAP value, which is held either as a string or as bytes.
+     * @param bytes The bytes, or null if the value is a string
+     * @param string The string, or null if the value is bytes
+     * @param index The index of the character
+     * @return The character
+     */
+    private static char charAt(
+        final byte[] bytes,
+        final String string,
+        final int index) {
+        return (bytes == null) ? string.charAt(index) : (char) (bytes[index] & 0xff);
+    }
+
+    /**
+     * Decode LDAP integer, straight from the characters or bytes of the LDAP value,
+     * without creating an intermediate string.  Leading and trailing whitespace is ignored.
+     * @param value The LDAP value
+     * @param type The primitive type of the member, which bounds the range of the integer
+     * @return The integer
+     * @throws IllegalArgumentException if the LDAP value is not an integer within the range of the type
+     */
+    static long decodeLong(
+        final Object value,
+        final Class<?> type) {
+
+        byte[] bytes;
+        String string;
+        int start = 0;
+        int end;
+        boolean negative;
+        long limit;
+        long multiplyLimit;
+        long result = 0;
+        char character;
+
+        bytes = (value instanceof byte[]) ? (byte[]) value : null;
+        string = (bytes == null) ? value.toString() : null;
+        end = (bytes == null) ? string.length() : bytes.length;
+
+        while ((start < end) && (charAt(bytes, string, start) <= ' ')) {
+            start++;
+        }
+
+        while ((end > start) && (charAt(bytes, string, end - 1) <= ' ')) {
+            end--;
+        }
+
+        negative = (start < end) && (charAt(bytes, string, start) == '-');
+
+        if ((negative == true) || ((start < end) && (charAt(bytes, string, start) == '+'))) {
+            start++;
+        }
+
+        if (start == end) {
+            throw new NumberFormatException("Invalid integer: " + toString(value));
+        }
+
+        limit = (type == int.class) ? Integer.MAX_VALUE : (type == short.class) ? Short.MAX_VALUE : (type == byte.class) ? Byte.MAX_VALUE : Long.MAX_VALUE;
+        limit = (negative == true) ? -limit - 1 : -limit;
+        multiplyLimit = limit / 10;
+
+        for (int i = start; i < end; i++) {
+
+            character = charAt(bytes, string, i);
+
+            if ((character < '0') || (character > '9') || (result < multiplyLimit)) {
+                throw new NumberFormatException("Invalid integer: " + toString(value));
+            }
+
+            result *= 10;
+
+            if (result < limit + (character - '0')) {
+                throw new NumberFormatException("Invalid integer: " + toString(value));
+            }
+
+            result -= character - '0';
+        }
+
+        return (negative == true) ? result : -result;
+    }
+
+    /**
+     * Decode LDAP real number.  A string value is parsed as is, without creating an
+     * intermediate string.
+     * @param value The LDAP value
+     * @param type The primitive type of the member, which is {@code double} or {@code float}
+     * @return The real number
+     * @throws IllegalArgumentException if the LDAP value is not a real number
+     */
+    static double decodeDouble(
+        final Object value,
+        final Class<?> type) {
+        return (type == float.class) ? Float.parseFloat(toString(value)) : Double.parseDouble(toString(value));
+    }
+
+    /**
+     * Decode LDAP boolean, which is {@code TRUE} or {@code FALSE}.
+     * @param value The LDAP value
+     * @return The boolean
+     * @throws IllegalArgumentException if the LDAP value is not a boolean
+     */
+    static boolean decodeBoolean(
+        final Object value) {
+
+        String string;
+
+        string = toString(value).trim();
+
+        if (string.equalsIgnoreCase("TRUE") == true) {
+            return true;
+        }
+
+        if (string.equalsIgnoreCase("FALSE") == true) {
+            return false;
+        }
+
+        throw new IllegalArgumentException("Invalid boolean: " + string);
+    }
+
+    /**
+     * Decode GeneralizedTime, in the form {@code YYYYMMDDHH[MM[SS]][(.|,)fraction](Z|(+|-)HH[MM])}.
+     * The fraction applies to the last unit that is present, and is read to at most nine
+     * digits.  A time without a time zone is taken to be in UTC.
+     * @param value The GeneralizedTime
+     * @return The instant
+     */
+    private static Instant decodeGeneralizedTime(
+        final String value) {
+
+        int length;
+        int position;
+        int minute = 0;
+        int second = 0;
+        long unit = 3600;
+        long fraction = 0;
+        long scale = 1;
+        int offset = 0;
+        char character;
+        long epochSecond;
+
+        length = value.length();
+
+        if (length < 10) {
+            throw new IllegalArgumentException("Invalid generalized time: " + value);
+        }
+
+        position = 10;
+
+        if ((position + 2 <= length) && (Character.isDigit(value.charAt(position)) == true)) {
+
+            minute = parseDigits(value, position, 2);
+            position += 2;
+            unit = 60;
+
+            if ((position + 2 <= length) && (Character.isDigit(value.charAt(position)) == true)) {
+
+                second = parseDigits(value, position, 2);
+                position += 2;
+                unit = 1;
+            }
+
+        }
+
+        if ((position < length) && ((value.charAt(position) == '.') || (value.charAt(position) == ','))) {
+
+            position++;
+
+            while ((position < length) && (Character.isDigit(value.charAt(position)) == true)) {
+
+                if (scale < 1_000_000_000L) {
+
+                    fraction = fraction * 10 + (value.charAt(position) - '0');
+                    scale *= 10;
+                }
+
+                position++;
+            }
+
+        }
+
+        if (position < length) {
+
+            character = value.charAt(position);
+
+            if (character == 'Z') {
+
+                position++;
+            }
+            else if ((character == '+') || (character == '-')) {
+
+                offset = parseDigits(value, position + 1, 2) * 3600;
+                position += 3;
+
+                if (position + 2 <= length) {
+
+                    offset += parseDigits(value, position, 2) * 60;
+                    position += 2;
+                }
+
+                offset = (character == '-') ? -offset : offset;
+            }
+
+        }
+
+        if (position != length) {
+            throw new IllegalArgumentException("Invalid generalized time: " + value);
+        }
+
+        epochSecond = LocalDate.of(parseDigits(value, 0, 4), parseDigits(value, 4, 2), parseDigits(value, 6, 2)).toEpochDay() * 86400
+            + parseDigits(value, 8, 2) * 3600 + minute * 60 + second - offset;
+
+        return Instant.ofEpochSecond(epochSecond, fraction * (unit * 1_000_000_000L / scale));
+    }
+
+    /**
+     * Encode instant as GeneralizedTime in UTC, with millisecond precision when the
+     * instant has a fraction of a second.
+     * @param value The instant
+     * @return The GeneralizedTime
+     */
+    private static String encodeGeneralizedTime(
+        final Instant value) {
+
+        LocalDateTime dateTime;
+        StringBuilder builder;
+
+        dateTime = LocalDateTime.ofEpochSecond(value.getEpochSecond(), value.getNano(), ZoneOffset.UTC);
+        builder = new StringBuilder(19);
+
+        appendDigits(builder, dateTime.getYear(), 4);
+        appendDigits(builder, dateTime.getMonthValue(), 2);
+        appendDigits(builder, dateTime.getDayOfMonth(), 2);
+        appendDigits(builder, dateTime.getHour(), 2);
+        appendDigits(builder, dateTime.getMinute(), 2);
+        appendDigits(builder, dateTime.getSecond(), 2);
+
+        if (value.getNano() != 0) {
+
+            builder.append('.');
+            appendDigits(builder, value.getNano() / 1_000_000, 3);
+        }
+
+        return builder.append('Z').toString();
+    }
+
+    /**
+     * Parse fixed number of decimal digits.
+     * @param value The string
+     * @param position The position of the first digit
+     * @param count The number of digits
+     * @return The number
+     */
+    private static int parseDigits(
+        final String value,
+        final int position,
+        final int count) {
+
+        int result = 0;
+        char character;
+
+        if (position + count > value.length()) {
+            throw new IllegalArgumentException("Invalid generalized time: " + value);
+        }
+
+        for (int i = position; i < position + count; i++) {
+
+            character = value.charAt(i);
+
+            if ((character < '0') || (character > '9')) {
+                throw new IllegalArgumentException("Invalid generalized time: " + value);
+            }
+
+            result = result * 10 + (character - '0');
+        }
+
+        return result;
+    }
+
+    /**
+     * Append number as fixed number of decimal digits, with leading zeros.
+     * @param builder The string builder
+     * @param number The number
+     * @param count The number of digits
+     */
+    private static void appendDigits(
+        final StringBuilder builder,
+        final int number,
+        final int count) {
+
+        for (int divisor = (int) Math.pow(10, count - 1); divisor > 0; divisor /= 10) {
+            builder.append((char) ('0' + (number / divisor) % 10));
+        }
+
+    }
+
+    /**
+     * Decode UUID from its string form, or from its 16 byte binary form with the
+     * first three groups in little-endian order.
+     * @param value The LDAP value
+     * @return The UUID
+     */
+    private static UUID decodeUuid(
+        final Object value) {
+
+        byte[] bytes;
+        long mostSignificant;
+        long leastSignificant = 0;
+
+        if ((value instanceof byte[]) == false) {
+            return UUID.fromString(value.toString().trim());
+        }
+
+        bytes = (byte[]) value;
+
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Invalid binary UUID of length " + bytes.length);
+        }
+
+        mostSignificant = (littleEndian(bytes, 0, 4) << 32) | (littleEndian(bytes, 4, 2) << 16) | littleEndian(bytes, 6, 2);
+
+        for (int i = 8; i < 16; i++) {
+            leastSignificant = (leastSignificant << 8) | (bytes[i] & 0xff);
+        }
+
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    /**
+     * Encode UUID in its 16 byte binary form, with the first three groups in
+     * little-endian order.
+     * @param value The UUID
+     * @return The bytes
+     */
+    private static byte[] encodeUuid(
+        final UUID value) {
+
+        byte[] bytes;
+        long mostSignificant;
+        long leastSignificant;
+
+        bytes = new byte[16];
+        mostSignificant = value.getMostSignificantBits();
+        leastSignificant = value.getLeastSignificantBits();
+
+        for (int i = 0; i < 4; i++) {
+            bytes[i] = (byte) (mostSignificant >>> (32 + 8 * i));
+        }
+
+        for (int i = 0; i < 2; i++) {
+            bytes[4 + i] = (byte) (mostSignificant >>> (16 + 8 * i));
+            bytes[6 + i] = (byte) (mostSignificant >>> (8 * i));
+        }
+
+        for (int i = 0; i < 8; i++) {
+            bytes[15 - i] = (byte) (leastSignificant >>> (8 * i));
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Read little-endian unsigned number.
+     * @param bytes The bytes
+     * @param position The position of the first byte
+     * @param count The number of bytes
+     * @return The number
+     */
+    private static long littleEndian(
+        final byte[] bytes,
+        final int position,
+        final int count) {
+
+        long result = 0;
+
+        for (int i = count - 1; i >= 0; i--) {
+            result = (result << 8) | (bytes[position + i] & 0xff);
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,348 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes and decodes the values of LDAP controls that the JDK does not provide,
+ * with the minimal subset of the Basic Encoding Rules that these controls require.
+ * Only the definite length form and single octet tags are supported, and integers
+ * are limited to 32 bits.
+ * @author Melior
+ * @since 2.3
+ */
+final class BerCodec {
+
+    static final int BOOLEAN = 0x01;
+
+    static final int INTEGER = 0x02;
+
+    static final int OCTET_STRING = 0x04;
+
+    static final int ENUMERATED = 0x0A;
+
+    static final int SEQUENCE = 0x30;
+
+    /**
+     * Constructor.
+     */
+    private BerCodec() {
+
+        super();
+    }
+
+    /**
+     * Encode sequence of elements.
+     * @param elements The encoded elements
+     * @return The encoded sequence
+     */
+    static byte[] sequence(
+        final byte[]... elements) {
+        return constructed(SEQUENCE, elements);
+    }
+
+    /**
+     * Encode constructed element with the supplied tag.
+     * @param tag The tag
+     * @param elements The encoded elements
+     * @return The encoded element
+     */
+    static byte[] constructed(
+        final int tag,
+        final byte[]... elements) {
+
+        ByteArrayOutputStream content;
+
+        content = new ByteArrayOutputStream();
+
+        for (byte[] element : elements) {
+
+            if (element != null) {
+                content.write(element, 0, element.length);
+            }
+
+        }
+
+        return element(tag, content.toByteArray());
+    }
+
+    /**
+     * Encode integer.
+     * @param value The integer
+     * @return The encoded integer
+     */
+    static byte[] integer(
+        final int value) {
+        return element(INTEGER, encodeInteger(value));
+    }
+
+    /**
+     * Encode enumerated value.
+     * @param value The enumerated value
+     * @return The encoded enumerated value
+     */
+    static byte[] enumerated(
+        final int value) {
+        return element(ENUMERATED, encodeInteger(value));
+    }
+
+    /**
+     * Encode boolean.
+     * @param value The boolean
+     * @return The encoded boolean
+     */
+    static byte[] bool(
+        final boolean value) {
+        return element(BOOLEAN, new byte[] {(byte) ((value == true) ? 0xFF : 0x00)});
+    }
+
+    /**
+     * Encode octet string.
+     * @param value The octets
+     * @return The encoded octet string
+     */
+    static byte[] octets(
+        final byte[] value) {
+        return element(OCTET_STRING, value);
+    }
+
+    /**
+     * Encode integer as the minimal two's complement content octets.
+     * @param value The integer
+     * @return The content octets
+     */
+    private static byte[] encodeInteger(
+        final int value) {
+
+        byte[] octets;
+        int start = 0;
+
+        octets = new byte[] {(byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value};
+
+        while ((start < 3) && (((octets[start] == 0) && (octets[start + 1] >= 0))
+            || ((octets[start] == -1) && (octets[start + 1] < 0)))) {
+            start++;
+        }
+
+        return Arrays.copyOfRange(octets, start, 4);
+    }
+
+    /**
+     * Encode element with the supplied tag and content, using the definite length form.
+     * @param tag The tag
+     * @param content The content octets
+     * @return The encoded element
+     */
+    private static byte[] element(
+        final int tag,
+        final byte[] content) {
+
+        ByteArrayOutputStream stream;
+        int length;
+
+        stream = new ByteArrayOutputStream(content.length + 6);
+        stream.write(tag);
+
+        length = content.length;
+
+        if (length < 0x80) {
+            stream.write(length);
+        }
+        else if (length < 0x100) {
+            stream.write(0x81);
+            stream.write(length);
+        }
+        else if (length < 0x10000) {
+            stream.write(0x82);
+            stream.write(length >> 8);
+            stream.write(length);
+        }
+        else {
+            stream.write(0x84);
+            stream.write(length >> 24);
+            stream.write(length >> 16);
+            stream.write(length >> 8);
+            stream.write(length);
+        }
+
+        stream.write(content, 0, content.length);
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * Reads the elements of an encoded value in order.  A malformed value surfaces
+     * as an {@code IllegalStateException}.
+     */
+    static final class Reader {
+
+        private byte[] value;
+
+        private int position;
+
+        /**
+         * Constructor.
+         * @param value The encoded value
+         */
+        Reader(
+            final byte[] value) {
+
+            super();
+
+            this.value = (value == null) ? new byte[0] : value;
+        }
+
+        /**
+         * Check whether the next element has the supplied tag.
+         * @param tag The tag
+         * @param end The position after the enclosing element
+         * @return true if there is a next element within the enclosing element and it has the tag, false otherwise
+         */
+        boolean isNext(
+            final int tag,
+            final int end) {
+            return (position < end) && ((value[position] & 0xFF) == tag);
+        }
+
+        /**
+         * Read tag and length of a constructed element, and advance to its content.
+         * @param tag The expected tag
+         * @return The position after the content
+         */
+        int enter(
+            final int tag) {
+            return readHeader(tag);
+        }
+
+        /**
+         * Read integer element.
+         * @return The integer
+         */
+        int readInteger() {
+            return readNumber(INTEGER);
+        }
+
+        /**
+         * Read enumerated element.
+         * @return The enumerated value
+         */
+        int readEnumerated() {
+            return readNumber(ENUMERATED);
+        }
+
+        /**
+         * Read boolean element.
+         * @return The boolean
+         */
+        boolean readBoolean() {
+
+            int end;
+            boolean result;
+
+            end = readHeader(BOOLEAN);
+
+            if (end - position != 1) {
+                throw new IllegalStateException("Malformed boolean.");
+            }
+
+            result = (value[position] != 0);
+
+            position = end;
+
+            return result;
+        }
+
+        /**
+         * Read octet string element.
+         * @return The octets
+         */
+        byte[] readOctets() {
+
+            int end;
+            byte[] result;
+
+            end = readHeader(OCTET_STRING);
+
+            result = Arrays.copyOfRange(value, position, end);
+
+            position = end;
+
+            return result;
+        }
+
+        /**
+         * Read integer or enumerated element.
+         * @param tag The expected tag
+         * @return The number
+         */
+        private int readNumber(
+            final int tag) {
+
+            int end;
+            int result;
+
+            end = readHeader(tag);
+
+            if ((end == position) || (end - position > 4)) {
+                throw new IllegalStateException("Integer out of range.");
+            }
+
+            result = value[position++];
+
+            while (position < end) {
+                result = (result << 8) | (value[position++] & 0xFF);
+            }
+
+            return result;
+        }
+
+        /**
+         * Read tag and length of element, and advance to its content.
+         * @param tag The expected tag
+         * @return The position after the content
+         */
+        private int readHeader(
+            final int tag) {
+
+            int length;
+            int octets;
+
+            if ((position >= value.length) || ((value[position++] & 0xFF) != tag)) {
+                throw new IllegalStateException("Unexpected tag.");
+            }
+
+            length = value[position++] & 0xFF;
+
+            if (length >= 0x80) {
+
+                octets = length & 0x7F;
+
+                if ((octets == 0) || (octets > 4)) {
+                    throw new IllegalStateException("Unsupported length.");
+                }
+
+                length = 0;
+
+                for (int i = 0; i < octets; i++) {
+                    length = (length << 8) | (value[position++] & 0xFF);
+                }
+
+            }
+
+            if ((length < 0) || (position + length > value.length)) {
+                throw new IllegalStateException("Length out of range.");
+            }
+
+            return position + length;
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.melior.client.exception.RemotingException;
+
+/**
+ * Holds the outcome of a bulk operation of an {@code LdapClient}.  The outcome of
+ * each item is reported individually, in the order in which the items were supplied,
+ * as a failure of one item does not affect the other items.
+ * @author Melior
+ * @since 2.3
+ */
+public class BulkResult<T> {
+
+    private List<Item<T>> items;
+
+    private int failureCount;
+
+    private long duration;
+
+    /**
+     * Constructor.
+     * @param items The outcomes of the individual items
+     * @param duration The duration of the bulk operation in milliseconds
+     */
+    BulkResult(
+        final List<Item<T>> items,
+        final long duration) {
+
+        super();
+
+        this.items = Collections.unmodifiableList(items);
+
+        this.duration = duration;
+
+        for (Item<T> item : items) {
+
+            if (item.isSuccess() == false) {
+                failureCount++;
+            }
+
+        }
+
+    }
+
+    /**
+     * Get outcomes of the individual items.
+     * @return The outcomes of the individual items
+     */
+    public List<Item<T>> getItems() {
+        return items;
+    }
+
+    /**
+     * Get items that failed.
+     * @return The outcomes of the items that failed
+     */
+    public List<Item<T>> getFailures() {
+
+        List<Item<T>> failures;
+
+        failures = new ArrayList<Item<T>>(failureCount);
+
+        for (Item<T> item : items) {
+
+            if (item.isSuccess() == false) {
+                failures.add(item);
+            }
+
+        }
+
+        return failures;
+    }
+
+    /**
+     * Get number of items that succeeded.
+     * @return The number of items that succeeded
+     */
+    public int getSuccessCount() {
+        return items.size() - failureCount;
+    }
+
+    /**
+     * Get number of items that failed.
+     * @return The number of items that failed
+     */
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Get duration of the bulk operation.
+     * @return The duration in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Holds the outcome of a single item of a bulk operation.
+     */
+    public static class Item<T> {
+
+        private T item;
+
+        private RemotingException exception;
+
+        /**
+         * Constructor.
+         * @param item The item
+         * @param exception The exception that caused the item to fail, or null if the item succeeded
+         */
+        Item(
+            final T item,
+            final RemotingException exception) {
+
+            super();
+
+            this.item = item;
+
+            this.exception = exception;
+        }
+
+        /**
+         * Get item.
+         * @return The item
+         */
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * Check whether the item succeeded.
+         * @return true if the item succeeded, false otherwise
+         */
+        public boolean isSuccess() {
+            return exception == null;
+        }
+
+        /**
+         * Get exception that caused the item to fail.
+         * @return The exception, or null if the item succeeded
+         */
+        public RemotingException getException() {
+            return exception;
+        }
+
+    }
+
+}
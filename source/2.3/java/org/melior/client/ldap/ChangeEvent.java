@@ -0,0 +1,136 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import javax.naming.Name;
+
+/**
+ * Holds a single change that a {@code ChangeFeed} read from the LDAP server.  The
+ * change carries the cookie of the change feed as it stood after the change, which
+ * may be stored once the change has been processed, and supplied when the change feed
+ * is opened again, to resume the change feed after the change.
+ * @author Melior
+ * @since 2.3
+ */
+public class ChangeEvent<T> {
+
+    private Type type;
+
+    private Name dn;
+
+    private Name previousDn;
+
+    private T entity;
+
+    private byte[] cookie;
+
+    /**
+     * Constructor.
+     * @param type The type of change
+     * @param dn The distinguished name of the entry
+     * @param previousDn The previous distinguished name of a renamed entry, or null
+     * @param entity The entry mapped to the entity type, or null for a deleted entry
+     * @param cookie The cookie after the change, or null
+     */
+    ChangeEvent(
+        final Type type,
+        final Name dn,
+        final Name previousDn,
+        final T entity,
+        final byte[] cookie) {
+
+        super();
+
+        this.type = type;
+
+        this.dn = dn;
+
+        this.previousDn = previousDn;
+
+        this.entity = entity;
+
+        this.cookie = cookie;
+    }
+
+    /**
+     * Get type of change.
+     * @return The type of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get distinguished name of the entry.
+     * @return The distinguished name
+     */
+    public Name getDn() {
+        return dn;
+    }
+
+    /**
+     * Get previous distinguished name of a renamed entry.
+     * @return The previous distinguished name, or null if the entry was not renamed, or the
+     * LDAP server did not report it
+     */
+    public Name getPreviousDn() {
+        return previousDn;
+    }
+
+    /**
+     * Get entry, mapped to the entity type.  The entry holds only the attributes that
+     * changed when the change was read with DirSync.
+     * @return The entity, or null if the entry was deleted
+     */
+    public T getEntity() {
+        return entity;
+    }
+
+    /**
+     * Get cookie of the change feed after the change.
+     * @return The cookie, or null if the protocol of the change feed does not issue cookies
+     */
+    public byte[] getCookie() {
+        return cookie;
+    }
+
+    /**
+     * The types of change.
+     */
+    public enum Type {
+
+        /**
+         * The entry was added.
+         */
+        ADD,
+
+        /**
+         * The entry was modified.  Also reported when the protocol does not distinguish
+         * between added and modified entries.
+         */
+        MODIFY,
+
+        /**
+         * The entry was deleted.
+         */
+        DELETE,
+
+        /**
+         * The entry was renamed or moved.
+         */
+        RENAME,
+
+        /**
+         * The entry is unchanged, and is reported during the initial refresh of a content
+         * synchronization so that the full content is known.
+         */
+        PRESENT
+
+    }
+
+}
@@ -0,0 +1,633 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import javax.naming.Name;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.BasicControl;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.HasControls;
+import javax.naming.ldap.LdapContext;
+import org.melior.logging.core.Logger;
+import org.melior.logging.core.LoggerFactory;
+import org.melior.util.exception.ExceptionUtil;
+import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.support.LdapUtils;
+
+/**
+ * Streams the changes to the entries that match an LDAP search to a {@code ChangeListener}.
+ * The change feed holds a dedicated connection to the LDAP server, which is opened outside
+ * the connection pools of the client, so that a long-lived search never holds a pooled
+ * connection.  The changed entries are mapped to the entity type with the {@code LdapObjectMapper}.
+ * <p>
+ * The change feed runs on its own thread until it is closed.  When the connection fails,
+ * the listener is notified, and the change feed reconnects after the backoff period and
+ * resumes from the last cookie that it received.  A change for which the listener throws
+ * an exception is therefore delivered again.  The control values are encoded and decoded
+ * with the {@code BerCodec}, as the JDK does not provide these controls.
+ * @author Melior
+ * @since 2.3
+ */
+public class ChangeFeed<T> implements AutoCloseable {
+
+    static final String PERSISTENT_SEARCH_OID = "2.16.840.1.113730.3.4.3";
+
+    static final String ENTRY_CHANGE_OID = "2.16.840.1.113730.3.4.7";
+
+    static final String SYNC_REQUEST_OID = "1.3.6.1.4.1.4203.1.9.1.1";
+
+    static final String SYNC_STATE_OID = "1.3.6.1.4.1.4203.1.9.1.2";
+
+    static final String SYNC_DONE_OID = "1.3.6.1.4.1.4203.1.9.1.3";
+
+    static final String DIRSYNC_OID = "1.2.840.113556.1.4.841";
+
+    private static final int DIRSYNC_OBJECT_SECURITY = 0x00000001;
+
+    private static final int DIRSYNC_MAXIMUM_BYTES = 1024 * 1024;
+
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private ConnectionFactory connectionFactory;
+
+    private LdapClientConfig configuration;
+
+    private Name base;
+
+    private String filter;
+
+    private SearchControls searchControls;
+
+    private LdapObjectMapper<T> mapper;
+
+    private ChangeFeedMode mode;
+
+    private ChangeListener<T> listener;
+
+    private ExecutorService executor;
+
+    private volatile byte[] cookie;
+
+    private volatile LdapContext context;
+
+    private volatile NamingEnumeration<SearchResult> results;
+
+    private volatile boolean closed;
+
+    private boolean refreshRequired;
+
+    private long changeCount;
+
+    /**
+     * Constructor.
+     * @param connectionFactory The factory with which to open the dedicated connection
+     * @param configuration The client configuration
+     * @param base The search base
+     * @param filter The search filter
+     * @param searchControls The search controls
+     * @param mapper The mapper for the changed entries
+     * @param mode The protocol with which to receive the changes
+     * @param cookie The cookie from which to resume, or null to start afresh
+     * @param listener The listener to deliver the changes to
+     */
+    ChangeFeed(
+        final ConnectionFactory connectionFactory,
+        final LdapClientConfig configuration,
+        final Name base,
+        final String filter,
+        final SearchControls searchControls,
+        final LdapObjectMapper<T> mapper,
+        final ChangeFeedMode mode,
+        final byte[] cookie,
+        final ChangeListener<T> listener) {
+
+        super();
+
+        this.connectionFactory = connectionFactory;
+
+        this.configuration = configuration;
+
+        this.base = base;
+
+        this.filter = filter;
+
+        this.searchControls = searchControls;
+
+        this.mapper = mapper;
+
+        this.mode = mode;
+
+        this.cookie = cookie;
+
+        this.listener = listener;
+    }
+
+    /**
+     * Start change feed on its own thread.
+     * @param name The name of the thread
+     */
+    void start(
+        final String name) {
+
+        executor = ExecutorFactory.createScheduler(name);
+        executor.execute(this::run);
+    }
+
+    /**
+     * Get protocol of the change feed.
+     * @return The protocol
+     */
+    public ChangeFeedMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Get last cookie that the change feed received.
+     * @return The cookie, or null if no cookie has been received
+     */
+    public byte[] getCookie() {
+        return cookie;
+    }
+
+    /**
+     * Check whether the change feed is closed.
+     * @return true if the change feed is closed, false otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Close change feed.  The search is abandoned and the dedicated connection is closed.
+     */
+    public void close() {
+
+        String methodName = "close";
+
+        if (closed == true) {
+            return;
+        }
+
+        closed = true;
+
+        closeConnection();
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        logger.debug(methodName, "Change feed closed.  Changes = ", changeCount);
+    }
+
+    /**
+     * Receive changes until the change feed is closed, reconnecting after each failure.
+     */
+    private void run() {
+
+        String methodName = "run";
+
+        while (closed == false) {
+
+            try {
+
+                context = (LdapContext) connectionFactory.openContext(configuration);
+
+                logger.debug(methodName, "Change feed connected.  mode = ", mode, ", base = ", base);
+
+                switch (mode) {
+                case PERSISTENT_SEARCH:
+                    receivePersistentSearch();
+                    break;
+                case CONTENT_SYNC:
+                    receiveContentSync();
+                    break;
+                default:
+                    receiveDirSync();
+                    break;
+                }
+
+                if (closed == false) {
+                    logger.debug(methodName, "Change feed search ended by LDAP server.");
+                }
+
+            }
+            catch (Exception exception) {
+
+                if (closed == true) {
+                    break;
+                }
+
+                if ((mode == ChangeFeedMode.CONTENT_SYNC) && (String.valueOf(exception.getMessage()).contains("error code 4096") == true)) {
+
+                    logger.debug(methodName, "LDAP server requires a full refresh.  Cookie discarded.");
+
+                    cookie = null;
+
+                    refreshRequired = true;
+                }
+
+                logger.debug(methodName, "Change feed failed: ", exception.getMessage());
+
+                try {
+
+                    listener.onError(exception);
+                }
+                catch (RuntimeException listenerException) {
+                    logger.debug(methodName, "Change listener failed: ", listenerException.getMessage());
+                }
+
+            }
+            finally {
+
+                closeConnection();
+            }
+
+            pause(configuration.getBackoffPeriod());
+        }
+
+    }
+
+    /**
+     * Receive changes with the persistent search control.  The control requests every
+     * type of change, only the changes after the search started, and an entry change
+     * notification with each change.
+     * <pre>
+     * PersistentSearch ::= SEQUENCE {
+     *     changeTypes  INTEGER,
+     *     changesOnly  BOOLEAN,
+     *     returnECs    BOOLEAN }
+     * </pre>
+     * @throws NamingException if the search fails
+     */
+    private void receivePersistentSearch() throws NamingException {
+
+        SearchResult result;
+        BerCodec.Reader reader;
+        ChangeEvent.Type type;
+        Name previousDn;
+        int end;
+
+        context.setRequestControls(new Control[] {new BasicControl(PERSISTENT_SEARCH_OID, Control.CRITICAL,
+            BerCodec.sequence(BerCodec.integer(1 | 2 | 4 | 8), BerCodec.bool(true), BerCodec.bool(true)))});
+
+        results = context.search(base, filter, searchControls);
+
+        while ((closed == false) && (results.hasMore() == true)) {
+
+            result = results.next();
+            type = ChangeEvent.Type.MODIFY;
+            previousDn = null;
+
+            for (Control control : getControls(result)) {
+
+                if (ENTRY_CHANGE_OID.equals(control.getID()) == true) {
+
+                    reader = new BerCodec.Reader(control.getEncodedValue());
+                    end = reader.enter(BerCodec.SEQUENCE);
+
+                    switch (reader.readEnumerated()) {
+                    case 1:
+                        type = ChangeEvent.Type.ADD;
+                        break;
+                    case 2:
+                        type = ChangeEvent.Type.DELETE;
+                        break;
+                    case 8:
+                        type = ChangeEvent.Type.RENAME;
+                        break;
+                    default:
+                        type = ChangeEvent.Type.MODIFY;
+                        break;
+                    }
+
+                    if (reader.isNext(BerCodec.OCTET_STRING, end) == true) {
+                        previousDn = LdapUtils.newLdapName(new String(reader.readOctets(), StandardCharsets.UTF_8));
+                    }
+
+                }
+
+            }
+
+            deliver(type, result, previousDn, null);
+        }
+
+    }
+
+    /**
+     * Receive changes with the content synchronization operation of RFC 4533, in refresh
+     * and persist mode.  The cookie is updated from the sync state control of each entry,
+     * and from the sync done control when the LDAP server ends the search.
+     * <p>
+     * The listener is asked to reconcile when the change feed resumes from a cookie, or
+     * refreshes afresh after its cookie was discarded, as the deletions of the refresh may
+     * be reported in sync info messages that JNDI does not deliver.  It is also asked when
+     * the sync done control reports that the deletions were refreshed.
+     * <pre>
+     * syncRequestValue ::= SEQUENCE {
+     *     mode        ENUMERATED { refreshOnly (1), refreshAndPersist (3) },
+     *     cookie      syncCookie OPTIONAL,
+     *     reloadHint  BOOLEAN DEFAULT FALSE }
+     *
+     * syncStateValue ::= SEQUENCE {
+     *     state       ENUMERATED { present (0), add (1), modify (2), delete (3) },
+     *     entryUUID   syncUUID,
+     *     cookie      syncCookie OPTIONAL }
+     *
+     * syncDoneValue ::= SEQUENCE {
+     *     cookie          syncCookie OPTIONAL,
+     *     refreshDeletes  BOOLEAN DEFAULT FALSE }
+     * </pre>
+     * @throws NamingException if the search fails
+     */
+    private void receiveContentSync() throws NamingException {
+
+        SearchResult result;
+        BerCodec.Reader reader;
+        ChangeEvent.Type type;
+        Control[] controls;
+        int end;
+
+        context.setRequestControls(new Control[] {new BasicControl(SYNC_REQUEST_OID, Control.CRITICAL,
+            BerCodec.sequence(BerCodec.enumerated(3), (cookie == null) ? null : BerCodec.octets(cookie)))});
+
+        results = context.search(base, filter, searchControls);
+
+        if ((cookie != null) || (refreshRequired == true)) {
+
+            reconcile();
+
+            refreshRequired = false;
+        }
+
+        while ((closed == false) && (results.hasMore() == true)) {
+
+            result = results.next();
+            type = ChangeEvent.Type.MODIFY;
+
+            for (Control control : getControls(result)) {
+
+                if (SYNC_STATE_OID.equals(control.getID()) == true) {
+
+                    reader = new BerCodec.Reader(control.getEncodedValue());
+                    end = reader.enter(BerCodec.SEQUENCE);
+
+                    switch (reader.readEnumerated()) {
+                    case 0:
+                        type = ChangeEvent.Type.PRESENT;
+                        break;
+                    case 1:
+                        type = ChangeEvent.Type.ADD;
+                        break;
+                    case 3:
+                        type = ChangeEvent.Type.DELETE;
+                        break;
+                    default:
+                        type = ChangeEvent.Type.MODIFY;
+                        break;
+                    }
+
+                    reader.readOctets();
+
+                    if (reader.isNext(BerCodec.OCTET_STRING, end) == true) {
+                        cookie = reader.readOctets();
+                    }
+
+                }
+
+            }
+
+            deliver(type, result, null, cookie);
+        }
+
+        controls = context.getResponseControls();
+
+        if (controls != null) {
+
+            for (Control control : controls) {
+
+                if (SYNC_DONE_OID.equals(control.getID()) == true) {
+
+                    reader = new BerCodec.Reader(control.getEncodedValue());
+                    end = reader.enter(BerCodec.SEQUENCE);
+
+                    if (reader.isNext(BerCodec.OCTET_STRING, end) == true) {
+                        cookie = reader.readOctets();
+                    }
+
+                    if ((reader.isNext(BerCodec.BOOLEAN, end) == true) && (reader.readBoolean() == true)) {
+                        reconcile();
+                    }
+
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Ask the listener to rescan the entries that the query selects, so that it removes
+     * the entries whose deletion the change feed could not deliver.
+     */
+    private void reconcile() {
+
+        String methodName = "reconcile";
+
+        logger.debug(methodName, "Change listener asked to reconcile.");
+
+        listener.onReconcile(cookie);
+    }
+
+    /**
+     * Receive changes with the DirSync control of Active Directory, by polling the LDAP
+     * server at the poll interval.  The changes of each poll are delivered once the cookie
+     * that follows them is known, with the new cookie on the last change only, so that a
+     * listener that stores the cookie of each change resumes after the last change that
+     * it processed.
+     * <pre>
+     * DirSyncRequestValue ::= SEQUENCE {
+     *     flags     INTEGER,
+     *     maxBytes  INTEGER,
+     *     cookie    OCTET STRING }
+     *
+     * DirSyncResponseValue ::= SEQUENCE {
+     *     moreResults  INTEGER,
+     *     unused       INTEGER,
+     *     cookie       OCTET STRING }
+     * </pre>
+     * @throws NamingException if the search fails
+     */
+    private void receiveDirSync() throws NamingException {
+
+        List<SearchResult> changes;
+        byte[] previousCookie;
+        boolean moreResults;
+        BerCodec.Reader reader;
+        Control[] controls;
+        Attribute deleted;
+
+        while (closed == false) {
+
+            do {
+
+                context.setRequestControls(new Control[] {new BasicControl(DIRSYNC_OID, Control.CRITICAL,
+                    BerCodec.sequence(BerCodec.integer(DIRSYNC_OBJECT_SECURITY), BerCodec.integer(DIRSYNC_MAXIMUM_BYTES),
+                        BerCodec.octets((cookie == null) ? new byte[0] : cookie)))});
+
+                results = context.search(base, filter, searchControls);
+
+                changes = new ArrayList<SearchResult>();
+
+                while ((closed == false) && (results.hasMore() == true)) {
+                    changes.add(results.next());
+                }
+
+                previousCookie = cookie;
+                moreResults = false;
+                controls = context.getResponseControls();
+
+                if (controls != null) {
+
+                    for (Control control : controls) {
+
+                        if (DIRSYNC_OID.equals(control.getID()) == true) {
+
+                            reader = new BerCodec.Reader(control.getEncodedValue());
+                            reader.enter(BerCodec.SEQUENCE);
+
+                            moreResults = (reader.readInteger() != 0);
+                            reader.readInteger();
+                            cookie = reader.readOctets();
+                        }
+
+                    }
+
+                }
+
+                for (int i = 0; (i < changes.size()) && (closed == false); i++) {
+
+                    deleted = changes.get(i).getAttributes().get("isDeleted");
+
+                    deliver(((deleted != null) && ("TRUE".equalsIgnoreCase(String.valueOf(deleted.get())) == true))
+                        ? ChangeEvent.Type.DELETE : ChangeEvent.Type.MODIFY,
+                        changes.get(i), null, (i == changes.size() - 1) ? cookie : previousCookie);
+                }
+
+            }
+            while ((moreResults == true) && (closed == false));
+
+            pause(configuration.getChangeFeedPollInterval());
+        }
+
+    }
+
+    /**
+     * Map change and deliver it to the listener.
+     * @param type The type of change
+     * @param result The search result that holds the changed entry
+     * @param previousDn The previous distinguished name of a renamed entry, or null
+     * @param eventCookie The cookie after the change, or null
+     * @throws NamingException if unable to map the entry
+     */
+    private void deliver(
+        final ChangeEvent.Type type,
+        final SearchResult result,
+        final Name previousDn,
+        final byte[] eventCookie) throws NamingException {
+
+        Name dn;
+        T entity = null;
+
+        dn = LdapUtils.newLdapName(result.getNameInNamespace());
+
+        if (type != ChangeEvent.Type.DELETE) {
+
+            entity = (mapper.isDnMapped() == true)
+                ? mapper.mapFromContext(new DirContextAdapter(result.getAttributes(), dn))
+                : mapper.mapFromAttributes(result.getAttributes());
+        }
+
+        changeCount++;
+
+        listener.onChange(new ChangeEvent<T>(type, dn, previousDn, entity, eventCookie));
+    }
+
+    /**
+     * Get response controls of a search result.
+     * @param result The search result
+     * @return The response controls, which is empty if there are none
+     * @throws NamingException if unable to get the response controls
+     */
+    private Control[] getControls(
+        final SearchResult result) throws NamingException {
+
+        Control[] controls = null;
+
+        if (result instanceof HasControls) {
+            controls = ((HasControls) result).getControls();
+        }
+
+        return (controls == null) ? new Control[0] : controls;
+    }
+
+    /**
+     * Close search and dedicated connection, if they are open.
+     */
+    private void closeConnection() {
+
+        NamingEnumeration<SearchResult> currentResults;
+        DirContext currentContext;
+
+        currentResults = results;
+        currentContext = context;
+
+        results = null;
+        context = null;
+
+        if (currentResults != null) {
+            ExceptionUtil.swallow(currentResults::close);
+        }
+
+        if (currentContext != null) {
+            ExceptionUtil.swallow(currentContext::close);
+        }
+
+    }
+
+    /**
+     * Pause the change feed, unless it is closed.
+     * @param duration The duration of the pause in milliseconds
+     */
+    private void pause(
+        final long duration) {
+
+        if ((closed == true) || (duration <= 0)) {
+            return;
+        }
+
+        try {
+
+            Thread.sleep(duration);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+}
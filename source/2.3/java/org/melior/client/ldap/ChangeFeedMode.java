@@ -0,0 +1,41 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+
+/**
+ * The protocols with which a {@code ChangeFeed} receives changes from the LDAP server.
+ * @author Melior
+ * @since 2.3
+ */
+public enum ChangeFeedMode {
+
+    /**
+     * The persistent search control, which is supported by most directory servers.
+     * The server pushes each change as it happens.  Persistent search does not issue
+     * cookies, hence changes that happen while the feed is disconnected are lost.
+     */
+    PERSISTENT_SEARCH,
+
+    /**
+     * The content synchronization operation of RFC 4533 in refresh and persist mode,
+     * which is supported by OpenLDAP and compatible servers.  The server first sends
+     * the changes since the cookie, or all entries if there is no cookie, and then
+     * pushes each change as it happens.
+     */
+    CONTENT_SYNC,
+
+    /**
+     * The DirSync control of Active Directory.  The server is polled at the change
+     * feed poll interval, and returns the entries that changed since the cookie, with
+     * only the attributes that changed.  The search base must be the root of a naming
+     * context.
+     */
+    DIRSYNC
+
+}
@@ -0,0 +1,50 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+
+/**
+ * Receives the changes that a {@code ChangeFeed} reads from the LDAP server.  The
+ * changes are delivered one at a time, in the order in which they are received, on
+ * the thread of the change feed.  The change feed does not read the next change until
+ * the listener returns, hence a slow listener slows down the change feed, but does
+ * not lose changes.
+ * @author Melior
+ * @since 2.3
+ */
+public interface ChangeListener<T> {
+
+    /**
+     * Handle change.
+     * @param event The change
+     */
+    void onChange(
+        ChangeEvent<T> event);
+
+    /**
+     * Handle failure of the change feed.  The change feed reconnects after the backoff
+     * period, and resumes from the last cookie that it received.
+     * @param exception The exception
+     */
+    default void onError(
+        final Exception exception) {
+    }
+
+    /**
+     * Handle deletions that the change feed cannot deliver.  With content synchronization,
+     * the LDAP server may report deletions as a set of entry UUIDs in a sync info message,
+     * which the change feed cannot receive, or may leave the entries that it no longer
+     * reports present to be treated as deleted.  The listener must then rescan the entries
+     * that the query selects, and remove the entries that it holds that are no longer present.
+     * @param cookie The cookie of the change feed when the rescan became necessary, or null
+     */
+    default void onReconcile(
+        final byte[] cookie) {
+    }
+
+}
@@ -0,0 +1,263 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.naming.CommunicationException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.TimeLimitExceededException;
+import javax.naming.directory.DirContext;
+
+/**
+ * Limits the number of requests that are in flight to the LDAP servers, with a limit that
+ * adapts to the observed latency of the requests.  The limit increases additively while
+ * the latency stays close to the baseline latency, and decreases multiplicatively when the
+ * latency rises well above the baseline, or when a request times out or fails to reach
+ * the LDAP server.  Callers beyond the limit wait for a bounded amount of time, and are
+ * shed when the wait expires, so that a slow LDAP server is not driven further into
+ * overload by ever more concurrent requests.
+ * <p>
+ * The baseline is the lowest latency observed, which drifts slowly towards the average
+ * latency so that it follows a lasting change in the latency of the LDAP servers.
+ * @author Melior
+ * @since 2.3
+ */
+class ConcurrencyLimiter {
+
+    private static final int INITIAL_LIMIT = 20;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final double TOLERANCE = 2.0;
+
+    private static final double SMOOTHING = 0.1;
+
+    private static final double DRIFT = 0.001;
+
+    private static final Set<String> OPERATIONS = new HashSet<String>(Arrays.asList("search", "lookup", "getAttributes",
+        "modifyAttributes", "bind", "rebind", "createSubcontext", "destroySubcontext", "unbind", "rename", "list", "listBindings"));
+
+    private PoolStatistics statistics;
+
+    private int maximumLimit;
+
+    private long waitTimeout;
+
+    private double limit;
+
+    private int inFlight;
+
+    private double average;
+
+    private double baseline;
+
+    private int samplesSinceDecrease;
+
+    /**
+     * Constructor.
+     * @param maximumLimit The maximum number of requests in flight
+     * @param waitTimeout The amount of time that a caller may wait for the limit, in milliseconds
+     * @param statistics The statistics of the connection pool, to which the limit is published
+     */
+    ConcurrencyLimiter(
+        final int maximumLimit,
+        final long waitTimeout,
+        final PoolStatistics statistics) {
+
+        super();
+
+        this.maximumLimit = Math.max(1, maximumLimit);
+
+        this.waitTimeout = waitTimeout;
+
+        this.statistics = statistics;
+
+        this.limit = Math.min(this.maximumLimit, INITIAL_LIMIT);
+
+        statistics.limitChanged((int) limit);
+    }
+
+    /**
+     * Acquire permission for a request, waiting for up to the wait timeout if the limit
+     * has been reached, or until the deadline of the request expires if that is sooner.
+     * @return true if permission was acquired, false if the caller must be shed
+     */
+    synchronized boolean acquire() {
+
+        long deadline;
+        long remaining;
+
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos((Deadline.current() == null) ? waitTimeout
+            : Math.min(waitTimeout, Deadline.current().remaining(TimeUnit.MILLISECONDS)));
+
+        while (inFlight >= (int) limit) {
+
+            remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+
+            if (remaining <= 0) {
+
+                statistics.requestShed();
+
+                return false;
+            }
+
+            try {
+
+                wait(remaining);
+            }
+            catch (InterruptedException exception) {
+
+                Thread.currentThread().interrupt();
+
+                return false;
+            }
+
+        }
+
+        inFlight++;
+
+        return true;
+    }
+
+    /**
+     * Release permission for a request.
+     */
+    synchronized void release() {
+
+        inFlight--;
+
+        notify();
+    }
+
+    /**
+     * Adapt the limit to the outcome of a request.  The limit is decreased at most once
+     * per window of as many requests as the limit, as the requests that are in flight
+     * when the LDAP server slows down all observe the same slowdown.
+     * @param latency The latency of the request, in nanoseconds
+     * @param dropped true if the request timed out or failed to reach the LDAP server, false otherwise
+     */
+    synchronized void sample(
+        final long latency,
+        final boolean dropped) {
+
+        double previousLimit;
+        boolean overloaded;
+
+        previousLimit = limit;
+
+        samplesSinceDecrease++;
+
+        if (dropped == true) {
+
+            overloaded = true;
+        }
+        else {
+
+            average = (average == 0) ? latency : (average * (1 - SMOOTHING)) + (latency * SMOOTHING);
+
+            baseline = ((baseline == 0) || (latency < baseline)) ? latency : baseline + ((average - baseline) * DRIFT);
+
+            overloaded = (average > baseline * TOLERANCE);
+        }
+
+        if (overloaded == true) {
+
+            if (samplesSinceDecrease >= (int) limit) {
+
+                limit = Math.max(1, limit * BACKOFF_RATIO);
+
+                samplesSinceDecrease = 0;
+            }
+
+        }
+        else if (inFlight * 2 >= (int) limit) {
+
+            limit = Math.min(maximumLimit, limit + 1);
+        }
+
+        if ((int) limit != (int) previousLimit) {
+
+            statistics.limitChanged((int) limit);
+
+            if (limit > previousLimit) {
+                notifyAll();
+            }
+
+        }
+
+    }
+
+    /**
+     * Wrap context in a proxy that samples the latency of each directory operation, and
+     * that releases the permission for the request when the context is closed.
+     * @param context The context
+     * @return The proxy
+     */
+    DirContext wrap(
+        final DirContext context) {
+
+        AtomicBoolean released;
+
+        released = new AtomicBoolean();
+
+        return (DirContext) Proxy.newProxyInstance(ConcurrencyLimiter.class.getClassLoader(), context.getClass().getInterfaces(),
+            (proxy, method, args) -> {
+
+                long start;
+                Object result;
+
+                if (method.getName().equals("close") == true) {
+
+                    if (released.compareAndSet(false, true) == true) {
+
+                        try {
+
+                            context.close();
+                        }
+                        finally {
+
+                            release();
+                        }
+
+                    }
+
+                    return null;
+                }
+
+                start = System.nanoTime();
+
+                try {
+
+                    result = method.invoke(context, args);
+                }
+                catch (InvocationTargetException exception) {
+
+                    if (OPERATIONS.contains(method.getName()) == true) {
+                        sample(System.nanoTime() - start, (exception.getCause() instanceof CommunicationException)
+                            || (exception.getCause() instanceof ServiceUnavailableException)
+                            || (exception.getCause() instanceof TimeLimitExceededException));
+                    }
+
+                    throw exception.getCause();
+                }
+
+                if (OPERATIONS.contains(method.getName()) == true) {
+                    sample(System.nanoTime() - start, false);
+                }
+
+                return result;
+            });
+    }
+
+}
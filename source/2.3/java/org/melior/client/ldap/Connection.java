@@ -8,48 +8,106 @@
 */
 package org.melior.client.ldap;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.naming.AuthenticationException;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.TimeLimitExceededException;
 import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapContext;
 import org.melior.client.exception.RemotingException;
 import org.melior.client.pool.ConnectionPool;
-import org.springframework.ldap.core.support.LdapContextSource;
+import org.melior.util.exception.ExceptionUtil;
 
 /**
  * Implements a wrapper around an LDAP {@code Connection} delegate.  The connection
  * is pooled until it experiences a connectivity error, or until it expires, either
  * due to being in surplus at the timeout interval, or due to it reaching the maximum
  * lifetime for a connection.
+ * <p>
+ * The connection is bound to a single LDAP server for its lifetime, and reports the
+ * latency and outcome of each request to the health state of that server.
+ * <p>
+ * A borrow that is made under a {@code Deadline} is aborted when the deadline expires
+ * before the connection is released.  The search results that are still open on the
+ * connection are closed first, which sends an LDAP abandon request for each search that
+ * has not completed, and fails a caller that waits for more results.  The raw connection
+ * is then closed, which fails a caller that waits for the response to any other request,
+ * unless search results are still open, in which case the close is deferred.  The
+ * connection is destroyed rather than returned to the connection pool, and the LDAP
+ * server abandons any request that is still outstanding when the network connection
+ * closes.
  * @author Melior
  * @since 2.3
  */
 public class Connection extends org.melior.client.core.Connection<LdapClientConfig, Connection, DirContext> {
 
-    private LdapContextSource ldapContextSource;
+    private LdapServer server;
+
+    private PoolStatistics statistics;
+
+    private LdapSocketFactory socketFactory;
+
+    private ScheduledFuture<?> expiry;
+
+    private long borrowCount;
+
+    private List<NamingEnumeration<?>> enumerations = new ArrayList<NamingEnumeration<?>>();
+
+    private volatile long lastActive = System.nanoTime();
+
+    private volatile boolean maintenance;
 
     /**
      * Constructor.
      * @param configuration The client configuration
      * @param connectionPool The connection pool
-     * @param ldapContextSource The LDAP context source
+     * @param server The LDAP server
+     * @param statistics The statistics of the connection pool
+     * @param socketFactory The socket factory of the client, or null if the connection is not secure
      * @throws RemotingException if an error occurs during the construction
      */
     public Connection(
         final LdapClientConfig configuration,
         final ConnectionPool<LdapClientConfig, Connection, DirContext> connectionPool,
-        final LdapContextSource ldapContextSource) throws RemotingException {
+        final LdapServer server,
+        final PoolStatistics statistics,
+        final LdapSocketFactory socketFactory) throws RemotingException {
 
         super(configuration, connectionPool);
 
-        this.ldapContextSource = ldapContextSource;
+        this.server = server;
+
+        this.statistics = statistics;
+
+        this.socketFactory = socketFactory;
     }
 
     /**
-     * Open raw connection.
+     * Open raw connection.  The server is put in backoff if it could not be reached.
      * @return The raw connection
      * @throws Exception if unable to open the raw connection
      */
     protected DirContext openConnection() throws Exception {
 
-        return ldapContextSource.getContext(configuration.getUsername(), configuration.getPassword());
+        try {
+
+            return LdapSocketFactory.open(socketFactory,
+                () -> server.getContextSource().getContext(configuration.getUsername(), configuration.getPassword()));
+        }
+        catch (Exception exception) {
+
+            server.connectFailed(exception);
+
+            throw exception;
+        }
+
     }
 
     /**
@@ -63,6 +121,171 @@ public class Connection extends org.melior.client.core.Connection<LdapClientConf
         connection.close();
     }
 
+    /**
+     * Get connection behind a context that was borrowed from the connection pool.
+     * @param context The context
+     * @return The connection
+     */
+    static Connection of(
+        final DirContext context) {
+        return (Connection) Proxy.getInvocationHandler(context);
+    }
+
+    /**
+     * Bind raw connection again with the supplied credentials, on the same network
+     * connection.  A connection that fails to bind remains open, and may be bound again.
+     * @param principal The distinguished name to bind as
+     * @param credentials The password
+     * @throws NamingException if unable to bind
+     */
+    void rebind(
+        final String principal,
+        final String credentials) throws NamingException {
+
+        LdapContext context;
+        long start;
+
+        context = (LdapContext) delegate;
+
+        server.requestStarted();
+
+        start = System.nanoTime();
+
+        try {
+
+            context.addToEnvironment(Context.SECURITY_AUTHENTICATION, "simple");
+            context.addToEnvironment(Context.SECURITY_PRINCIPAL, principal);
+            context.addToEnvironment(Context.SECURITY_CREDENTIALS, credentials);
+            context.reconnect(null);
+        }
+        catch (NamingException exception) {
+
+            server.requestFailed(exception);
+
+            if ((exception instanceof AuthenticationException) == false) {
+                captureException(exception);
+            }
+
+            throw exception;
+        }
+
+        server.requestSucceeded(System.nanoTime() - start);
+    }
+
+    /**
+     * Check whether the connection has been idle for at least the supplied amount of time,
+     * since it was last released or validated.
+     * @param idleTime The amount of time, in milliseconds
+     * @return true if the connection has been idle for at least the amount of time, false otherwise
+     */
+    boolean isIdleFor(
+        final long idleTime) {
+        return System.nanoTime() - lastActive >= TimeUnit.MILLISECONDS.toNanos(idleTime);
+    }
+
+    /**
+     * Validate raw connection by reading the root DSE, without any attributes.  A connection
+     * that fails to validate is destroyed rather than returned to the connection pool when
+     * it is released.
+     * @return true if the connection is valid, false otherwise
+     */
+    boolean validate() {
+
+        try {
+
+            delegate.getAttributes("", new String[] {"1.1"});
+
+            lastActive = System.nanoTime();
+
+            return true;
+        }
+        catch (NamingException exception) {
+
+            captureException(exception);
+
+            return false;
+        }
+
+    }
+
+    /**
+     * Mark the current borrow of the connection as pool maintenance, which is not counted
+     * as an active connection in the pool statistics.
+     */
+    void borrowedForMaintenance() {
+        maintenance = true;
+    }
+
+    /**
+     * Abort the current borrow of the connection when the supplied deadline expires
+     * before the connection is released.
+     * @param watchdog The scheduler on which to abort the borrow
+     * @param deadline The deadline
+     */
+    synchronized void expireAt(
+        final ScheduledExecutorService watchdog,
+        final Deadline deadline) {
+
+        long borrow;
+
+        borrow = ++borrowCount;
+
+        expiry = watchdog.schedule(() -> abort(borrow), Math.max(0, deadline.remaining(TimeUnit.NANOSECONDS)), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Abort borrow of the connection, if the connection has not been released since.
+     * @param borrow The borrow to abort
+     */
+    private synchronized void abort(
+        final long borrow) {
+
+        if ((expiry == null) || (borrow != borrowCount)) {
+            return;
+        }
+
+        expiry = null;
+
+        captureException(new TimeLimitExceededException("Deadline expired."));
+
+        for (NamingEnumeration<?> enumeration : enumerations) {
+            ExceptionUtil.swallow(enumeration::close);
+        }
+
+        enumerations.clear();
+
+        ExceptionUtil.swallow(() -> closeConnection(delegate));
+    }
+
+    /**
+     * Track search results that are opened while the current borrow may be aborted, so
+     * that they can be closed when it is.
+     * @param enumeration The search results
+     */
+    private synchronized void track(
+        final NamingEnumeration<?> enumeration) {
+
+        if (expiry != null) {
+            enumerations.add(enumeration);
+        }
+
+    }
+
+    /**
+     * Cancel abort of the current borrow of the connection.
+     */
+    private synchronized void disarm() {
+
+        if (expiry != null) {
+
+            expiry.cancel(false);
+
+            expiry = null;
+        }
+
+        enumerations.clear();
+    }
+
     /**
      * Handle proxy invocation.
      * @param object The object on which the method was invoked
@@ -78,18 +301,50 @@ public class Connection extends org.melior.client.core.Connection<LdapClientConf
 
         String methodName;
         Object invocationResult;
+        long start;
 
         methodName = method.getName();
 
         if (methodName.equals("close") == true) {
+
+            disarm();
 
+            lastActive = System.nanoTime();
+
+            if (maintenance == true) {
+                maintenance = false;
+            }
+            else {
+                statistics.connectionReleased();
+            }
+
             releaseConnection(this);
 
             invocationResult = null;
         }
         else {
 
-            invocationResult = invoke(method, args);
+            server.requestStarted();
+
+            start = System.nanoTime();
+
+            try {
+
+                invocationResult = invoke(method, args);
+            }
+            catch (Throwable exception) {
+
+                server.requestFailed(exception);
+
+                throw exception;
+            }
+
+            server.requestSucceeded(System.nanoTime() - start);
+
+            if (invocationResult instanceof NamingEnumeration) {
+                track((NamingEnumeration<?>) invocationResult);
+            }
+
         }
 
         return invocationResult;
@@ -7,73 +7,159 @@
         Service Harness
 */
 package org.melior.client.ldap;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.naming.directory.DirContext;
 import javax.net.ssl.SSLContext;
 import org.melior.client.exception.RemotingException;
 import org.melior.client.pool.ConnectionPool;
+import org.melior.service.exception.ExceptionType;
+import org.springframework.ldap.core.support.DefaultTlsDirContextAuthenticationStrategy;
 import org.springframework.ldap.core.support.LdapContextSource;
 import org.springframework.ldap.core.support.SimpleDirContextAuthenticationStrategy;
+import org.springframework.util.StringUtils;
 
 /**
  * Implements a factory for persistent LDAP {@code Connection} objects.
+ * <p>
+ * The configured URL may list several LDAP servers, separated by spaces or commas.
+ * Each new connection is opened to a server chosen by the configured load balancing
+ * strategy, and fails over to the other servers if the chosen server cannot be reached.
+ * <p>
+ * Connections may be secured with LDAPS, or with StartTLS on a plain LDAP port.  With
+ * StartTLS, each connection is upgraded once when it is opened, and remains upgraded
+ * for as long as it is pooled.
  * @author Melior
  * @since 2.3
  */
 public class ConnectionFactory implements org.melior.client.core.ConnectionFactory<LdapClientConfig, Connection, DirContext> {
 
-    private LdapContextSource ldapContextSource;
+    private ServerSelector serverSelector;
+
+    private PoolStatistics statistics;
+
+    private LdapSocketFactory socketFactory;
 
     /**
      * Constructor.
      * @param ssl The SSL indicator
-     * @param sslContext The SSL context
+     * @param startTls The StartTLS indicator
+     * @param sslContext The SSL context, which is shared by all the connection factories of the client
+     * @param lenient true if the SSL context is the lenient one of the client, and the host
+     * name of the LDAP server must not be verified, false otherwise
      * @param configuration The client configuration
      * @throws RemotingException if unable to initialize the connection factory
      */
     public ConnectionFactory(
         final boolean ssl,
+        final boolean startTls,
         final SSLContext sslContext,
+        final boolean lenient,
         final LdapClientConfig configuration) throws RemotingException {
 
         super();
 
+        List<LdapServer> servers;
+
+        if ((ssl == true) || (startTls == true)) {
+            socketFactory = new LdapSocketFactory(sslContext, configuration);
+        }
+
+        servers = new ArrayList<LdapServer>();
+
+        for (String url : configuration.getUrl().trim().split("[\\s,]+")) {
+
+            servers.add(new LdapServer(url, createContextSource(ssl, startTls, lenient, url, configuration), configuration));
+        }
+
+        serverSelector = new ServerSelector(servers, configuration.getLoadBalancing());
+
+        statistics = new PoolStatistics();
+    }
+
+    /**
+     * Create context source for an LDAP server.
+     * @param ssl The SSL indicator
+     * @param startTls The StartTLS indicator
+     * @param lenient true if the host name of the LDAP server must not be verified, false otherwise
+     * @param url The URL of the LDAP server
+     * @param configuration The client configuration
+     * @return The context source
+     */
+    private LdapContextSource createContextSource(
+        final boolean ssl,
+        final boolean startTls,
+        final boolean lenient,
+        final String url,
+        final LdapClientConfig configuration) {
+
         Map<String, Object> properties;
+        LdapContextSource ldapContextSource;
+        DefaultTlsDirContextAuthenticationStrategy tlsStrategy;
 
+        properties = new HashMap<String, Object>();
+        properties.put("com.sun.jndi.ldap.connect.timeout", String.valueOf(configuration.getConnectionTimeout()));
+
         if (ssl == true) {
-
-            properties = new HashMap<String, Object>();
-            properties.put("com.sun.jndi.ldap.connect.timeout", String.valueOf(configuration.getConnectionTimeout()));
             properties.put("java.naming.ldap.factory.socket", LdapSocketFactory.class.getName());
+        }
+
+        if (StringUtils.hasText(configuration.getBinaryAttributes()) == true) {
+            properties.put("java.naming.ldap.attributes.binary", configuration.getBinaryAttributes());
+        }
+
+        ldapContextSource = new LdapContextSource();
+        ldapContextSource.setUrl(url);
+        ldapContextSource.setUserDn(configuration.getUsername());
+        ldapContextSource.setPassword(configuration.getPassword());
+        ldapContextSource.setPooled(false);
+        ldapContextSource.setBaseEnvironmentProperties(properties);
+
+        if (ssl == true) {
 
-            ldapContextSource = new LdapContextSource();
-            ldapContextSource.setUrl(configuration.getUrl());
-            ldapContextSource.setUserDn(configuration.getUsername());
-            ldapContextSource.setPassword(configuration.getPassword());
-            ldapContextSource.setPooled(false);
-            ldapContextSource.setBaseEnvironmentProperties(properties);
             ldapContextSource.setAuthenticationStrategy(new SimpleDirContextAuthenticationStrategy());
-            ldapContextSource.afterPropertiesSet();
         }
-        else {
-
-            properties = new HashMap<String, Object>();
-            properties.put("com.sun.jndi.ldap.connect.timeout", String.valueOf(configuration.getConnectionTimeout()));
-
-            ldapContextSource = new LdapContextSource();
-            ldapContextSource.setUrl(configuration.getUrl());
-            ldapContextSource.setUserDn(configuration.getUsername());
-            ldapContextSource.setPassword(configuration.getPassword());
-            ldapContextSource.setPooled(false);
-            ldapContextSource.setBaseEnvironmentProperties(properties);
-            ldapContextSource.afterPropertiesSet();
+        else if (startTls == true) {
+
+            tlsStrategy = new DefaultTlsDirContextAuthenticationStrategy();
+            tlsStrategy.setSslSocketFactory(socketFactory);
+            tlsStrategy.setShutdownTlsGracefully(true);
+
+            if (lenient == true) {
+                tlsStrategy.setHostnameVerifier((hostname, session) -> true);
+            }
+
+            ldapContextSource.setAuthenticationStrategy(tlsStrategy);
         }
+
+        ldapContextSource.afterPropertiesSet();
+
+        return ldapContextSource;
+    }
 
+    /**
+     * Get LDAP servers.
+     * @return The LDAP servers, in the order in which they were configured
+     */
+    public List<LdapServer> getServers() {
+        return serverSelector.getServers();
     }
 
     /**
-     * Create a new connection.
+     * Get statistics of the connection pool that this factory creates connections for.
+     * @return The pool statistics
+     */
+    public PoolStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Create a new connection.  The servers are tried in order of preference until
+     * a connection opens successfully.  A server that cannot be reached is put in backoff,
+     * while a server that rejects the connection for another reason, such as invalid
+     * credentials, is not.
      * @param configuration The client configuration
      * @param connectionPool The connection pool
      * @return The new connection
@@ -84,11 +170,67 @@ public class ConnectionFactory implements org.melior.client.core.ConnectionFacto
         final ConnectionPool<LdapClientConfig, Connection, DirContext> connectionPool) throws RemotingException {
 
         Connection connection;
+        RemotingException lastException = null;
 
-        connection = new Connection(configuration, connectionPool, ldapContextSource);
-        connection.open();
+        for (LdapServer server : serverSelector.select()) {
+
+            try {
+
+                connection = new Connection(configuration, connectionPool, server, statistics, socketFactory);
+                connection.open();
 
-        return connection;
+                server.resetBackoff();
+
+                statistics.connectionCreated();
+
+                return connection;
+            }
+            catch (RemotingException exception) {
+
+                lastException = exception;
+            }
+
+        }
+
+        throw lastException;
+    }
+
+    /**
+     * Open a raw context that is not pooled, for a long-lived request that must not
+     * hold a pooled connection.  The servers are tried in order of preference until
+     * a context opens successfully.  The context must be closed by the caller.
+     * @param configuration The client configuration
+     * @return The raw context
+     * @throws RemotingException if unable to open the context
+     */
+    DirContext openContext(
+        final LdapClientConfig configuration) throws RemotingException {
+
+        DirContext context;
+        Exception lastException = null;
+
+        for (LdapServer server : serverSelector.select()) {
+
+            try {
+
+                context = LdapSocketFactory.open(socketFactory,
+                    () -> server.getContextSource().getContext(configuration.getUsername(), configuration.getPassword()));
+
+                server.resetBackoff();
+
+                return context;
+            }
+            catch (Exception exception) {
+
+                server.connectFailed(exception);
+
+                lastException = exception;
+            }
+
+        }
+
+        throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Failed to open connection: "
+            + ((lastException == null) ? "no LDAP server available." : lastException.getMessage()), lastException);
     }
 
     /**
@@ -99,6 +241,8 @@ public class ConnectionFactory implements org.melior.client.core.ConnectionFacto
         final Connection connection) {
 
         connection.close();
+
+        statistics.connectionDestroyed();
     }
 
 }
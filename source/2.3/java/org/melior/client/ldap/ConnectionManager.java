@@ -7,7 +7,17 @@
         Service Harness
 */
 package org.melior.client.ldap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.naming.directory.DirContext;
+import org.melior.client.exception.RemotingException;
+import org.melior.util.exception.ExceptionUtil;
 import org.springframework.ldap.NamingException;
 import org.springframework.ldap.UncategorizedLdapException;
 import org.springframework.ldap.core.ContextSource;
@@ -16,11 +26,49 @@ import org.springframework.ldap.core.ContextSource;
  * Implements a manager for persistent LDAP {@code Connection} objects, for connections to
  * LDAP servers. The manager writes statistics from the underlying connection pool to
  * the logs whenever a {@code Connection} is borrowed from the pool.
+ * <p>
+ * When a separate read pool is configured, read-only contexts are borrowed from the read
+ * pool, while read-write contexts are borrowed from this pool.
+ * <p>
+ * When more than one request per connection is configured, the contexts are derived from
+ * a few shared connections on which the requests are multiplexed, instead of being
+ * borrowed from the pool.
+ * <p>
+ * When adaptive concurrency limiting is enabled, the number of contexts that are in use
+ * at the same time is capped by a limit that adapts to the latency of the requests.
+ * <p>
+ * When a context is borrowed under a {@code Deadline}, the connection is aborted and
+ * destroyed if the deadline expires before the context is closed.  This does not apply
+ * to multiplexed requests, which share their connection with other callers, and are
+ * bounded only by the time limit that is sent with a search.
+ * <p>
+ * The idle connections may be validated in the background, so that connections that
+ * were dropped while idle are evicted before a request borrows them.
  * @author Melior
  * @since 2.3
  */
 public class ConnectionManager extends org.melior.client.pool.ConnectionManager<LdapClientConfig, Connection, DirContext> implements ContextSource {
 
+    private ConnectionManager readManager;
+
+    private PoolStatistics statistics;
+
+    private LdapMetrics metrics;
+
+    private String poolName;
+
+    private int minimumConnections;
+
+    private int validationTimeout;
+
+    private int keepaliveInterval;
+
+    private ConnectionMultiplexer multiplexer;
+
+    private ConcurrencyLimiter limiter;
+
+    private ScheduledExecutorService watchdog;
+
     /**
      * Constructor.
      * @param configuration The client configuration
@@ -30,11 +78,70 @@ public class ConnectionManager extends org.melior.client.pool.ConnectionManager<
         final LdapClientConfig configuration,
         final ConnectionFactory connectionFactory) {
 
+        this(configuration, connectionFactory, null, LdapMetrics.NONE);
+    }
+
+    /**
+     * Constructor.
+     * @param configuration The client configuration
+     * @param connectionFactory The connection factory
+     * @param readManager The connection manager of the read pool, or null if
+     * read-only contexts must be borrowed from this pool
+     * @param metrics The metrics to which to report the pool statistics
+     */
+    public ConnectionManager(
+        final LdapClientConfig configuration,
+        final ConnectionFactory connectionFactory,
+        final ConnectionManager readManager,
+        final LdapMetrics metrics) {
+
         super(configuration, connectionFactory);
+
+        this.readManager = readManager;
+
+        this.statistics = connectionFactory.getStatistics();
+
+        this.metrics = metrics;
+
+        this.poolName = (configuration.getName() == null) ? "ldap" : configuration.getName();
+
+        this.minimumConnections = configuration.getMinimumConnections();
+
+        this.validationTimeout = configuration.getValidationTimeout();
+
+        this.keepaliveInterval = configuration.getKeepaliveInterval();
+
+        this.multiplexer = (configuration.getMultiplexedRequests() > 1)
+            ? new ConnectionMultiplexer(configuration, connectionFactory, statistics) : null;
+
+        this.limiter = (configuration.isAdaptiveConcurrency() == true)
+            ? new ConcurrencyLimiter(configuration.getMaximumConnections() * Math.max(1, configuration.getMultiplexedRequests()),
+                configuration.getConcurrencyWaitTimeout(), statistics) : null;
+
+        metrics.registerPool(poolName, statistics);
     }
 
     /**
-     * Get context.
+     * Get statistics of connection pool.
+     * @return The pool statistics
+     */
+    public PoolStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get connection manager of read pool.
+     * @return The connection manager of the read pool, or null if there is no separate read pool
+     */
+    public ConnectionManager getReadManager() {
+        return readManager;
+    }
+
+    /**
+     * Get context.  When requests are multiplexed, the context is derived from a shared
+     * connection rather than borrowed from the pool.  When adaptive concurrency limiting
+     * is enabled, the caller first waits for the number of requests in flight to drop
+     * below the limit, and is shed if the wait expires.
      * @param principal The principal
      * @param credentials The credentials
      * @return The context
@@ -43,19 +150,286 @@ public class ConnectionManager extends org.melior.client.pool.ConnectionManager<
     public DirContext getContext(
         final String principal,
         final String credentials) throws NamingException {
+        return borrow();
+    }
+
+    /**
+     * Borrow context.
+     * @return The context
+     * @throws NamingException if unable to create a context
+     */
+    private DirContext borrow() throws NamingException {
+
+        DirContext context;
+        boolean permitted = false;
+        boolean borrowed = false;
+        long start;
+
+        statistics.borrowStarted();
+
+        start = System.nanoTime();
 
         try {
 
-            return getConnection();
+            if (limiter != null) {
+
+                permitted = limiter.acquire();
+
+                if (permitted == false) {
+                    throw new UncategorizedLdapException("Concurrency limit reached.  Request shed.");
+                }
+
+            }
+
+            context = (multiplexer == null) ? getConnection() : multiplexer.getContext();
+
+            if ((multiplexer == null) && (Deadline.current() != null)) {
+                Connection.of(context).expireAt(getWatchdog(), Deadline.current());
+            }
+
+            borrowed = true;
+
+            return (permitted == false) ? context : limiter.wrap(context);
         }
         catch (Exception exception) {
+
+            if ((permitted == true) && (borrowed == false)) {
+                limiter.release();
+            }
+
             throw new UncategorizedLdapException(exception.getMessage());
         }
+        finally {
+
+            statistics.borrowEnded(borrowed);
+
+            metrics.recordBorrow(poolName, System.nanoTime() - start);
+        }
+
+    }
+
+    /**
+     * Borrow connection for pool maintenance.  The borrow is not subject to the concurrency
+     * limit, and is left out of the pool statistics and of the borrow metrics, so that
+     * filling and validating the pool does not show as requests.
+     * @return The context
+     * @throws NamingException if unable to borrow a connection
+     */
+    private DirContext borrowForMaintenance() throws NamingException {
+
+        DirContext context;
+
+        try {
+
+            context = getConnection();
+        }
+        catch (Exception exception) {
+            throw new UncategorizedLdapException(exception.getMessage(), exception);
+        }
+
+        Connection.of(context).borrowedForMaintenance();
+
+        if (Deadline.current() != null) {
+            Connection.of(context).expireAt(getWatchdog(), Deadline.current());
+        }
+
+        return context;
+    }
+
+    /**
+     * Close connection manager.  The shared connections are closed, the scheduler on which
+     * connections are aborted is shut down, and the connection manager of the read pool is
+     * closed.
+     */
+    public void close() {
+
+        if (multiplexer != null) {
+            multiplexer.close();
+        }
+
+        synchronized (this) {
+
+            if (watchdog != null) {
+                watchdog.shutdownNow();
+            }
+
+        }
+
+        if (readManager != null) {
+            readManager.close();
+        }
+
+    }
+
+    /**
+     * Get scheduler on which to abort the connections whose deadline expires, which is
+     * created when it is first needed.
+     * @return The scheduler
+     */
+    private synchronized ScheduledExecutorService getWatchdog() {
+
+        if (watchdog == null) {
+            watchdog = ExecutorFactory.createScheduler(poolName + "-watchdog");
+        }
+
+        return watchdog;
+    }
+
+    /**
+     * Fill pool up to the minimum number of connections, and the read pool too if there
+     * is one.  The missing connections are opened in parallel on the supplied executor,
+     * by borrowing them all at once and returning them to the pool when all are open.
+     * @param executor The executor on which to open the connections
+     * @return The future that completes when all connections are open, or that completes
+     * exceptionally if any connection could not be opened
+     */
+    public CompletableFuture<Void> fill(
+        final Executor executor) {
+
+        int deficit;
+        List<CompletableFuture<DirContext>> futures;
+        CompletableFuture<Void> result;
+
+        if (multiplexer != null) {
+
+            result = CompletableFuture.runAsync(() -> {
+
+                try {
+
+                    multiplexer.open(minimumConnections);
+                }
+                catch (RemotingException exception) {
+                    throw new UncategorizedLdapException(exception.getMessage(), exception);
+                }
+
+            }, executor);
+
+            return (readManager == null) ? result : CompletableFuture.allOf(result, readManager.fill(executor));
+        }
+
+        deficit = minimumConnections - statistics.getOpen();
+        futures = new ArrayList<CompletableFuture<DirContext>>(Math.max(0, deficit));
+
+        for (int i = 0; i < deficit; i++) {
+
+            try {
+
+                futures.add(CompletableFuture.supplyAsync(() -> borrowForMaintenance(), executor));
+            }
+            catch (RejectedExecutionException exception) {
+
+                futures.add(CompletableFuture.completedFuture(borrowForMaintenance()));
+            }
+
+        }
+
+        result = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+            .whenComplete((value, exception) -> {
+
+                for (CompletableFuture<DirContext> future : futures) {
+
+                    if (future.isCompletedExceptionally() == false) {
+                        ExceptionUtil.swallow(() -> future.join().close());
+                    }
+
+                }
+
+            });
+
+        return (readManager == null) ? result : CompletableFuture.allOf(result, readManager.fill(executor));
+    }
+
+    /**
+     * Validate the idle connections of the pool, and of the read pool too if there is one.
+     * The idle connections are borrowed all at once, without any round trip, so that each
+     * is considered once.  A connection that was used or validated within the keepalive
+     * interval is returned to the pool straight away.  The others are validated in
+     * parallel on the supplied executor, and each is returned to the pool as soon as it
+     * has been validated, so that the pool is short of connections for no longer than a
+     * single round trip.  A connection that fails to validate, or that does not respond
+     * within the validation timeout, is destroyed when it is returned to the pool.
+     * @param executor The executor on which to validate the connections
+     * @return The future that completes with the number of connections that failed to validate
+     */
+    public CompletableFuture<Integer> validate(
+        final Executor executor) {
+
+        int count;
+        List<DirContext> contexts;
+        List<CompletableFuture<Void>> futures;
+        AtomicInteger failed;
+        Runnable validation;
+        Deadline previous;
+        CompletableFuture<Integer> result;
+
+        if (multiplexer != null) {
+
+            result = CompletableFuture.supplyAsync(() -> multiplexer.validate(getWatchdog(), validationTimeout), executor);
+
+            return (readManager == null) ? result : result.thenCombine(readManager.validate(executor), Integer::sum);
+        }
+
+        count = statistics.getIdle();
+        contexts = new ArrayList<DirContext>(Math.max(0, count));
+
+        previous = Deadline.enter(Deadline.after(validationTimeout, TimeUnit.MILLISECONDS));
+
+        try {
+
+            for (int i = 0; i < count; i++) {
+                contexts.add(borrowForMaintenance());
+            }
+
+        }
+        catch (NamingException exception) {
 
+            // The connections that were borrowed before the failure are still validated.
+        }
+        finally {
+
+            Deadline.exit(previous);
+        }
+
+        futures = new ArrayList<CompletableFuture<Void>>(contexts.size());
+        failed = new AtomicInteger();
+
+        for (DirContext context : contexts) {
+
+            if (Connection.of(context).isIdleFor(keepaliveInterval) == false) {
+
+                ExceptionUtil.swallow(context::close);
+
+                continue;
+            }
+
+            validation = () -> {
+
+                if (Connection.of(context).validate() == false) {
+                    failed.incrementAndGet();
+                }
+
+                ExceptionUtil.swallow(context::close);
+            };
+
+            try {
+
+                futures.add(CompletableFuture.runAsync(validation, executor));
+            }
+            catch (RejectedExecutionException exception) {
+
+                validation.run();
+            }
+
+        }
+
+        result = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+            .handle((value, exception) -> failed.get());
+
+        return (readManager == null) ? result : result.thenCombine(readManager.validate(executor), Integer::sum);
     }
 
     public DirContext getReadOnlyContext() throws NamingException {
-        return getContext(null, null);
+        return (readManager == null) ? getContext(null, null) : readManager.getContext(null, null);
     }
 
     public DirContext getReadWriteContext() throws NamingException {
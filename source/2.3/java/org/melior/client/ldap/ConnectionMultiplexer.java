@@ -0,0 +1,495 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.naming.CommunicationException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapContext;
+import org.melior.client.exception.RemotingException;
+import org.melior.service.exception.ExceptionType;
+import org.melior.util.exception.ExceptionUtil;
+import org.springframework.ldap.UncategorizedLdapException;
+
+/**
+ * Multiplexes concurrent LDAP requests over a small number of shared connections, as an
+ * alternative to a pool of connections that each carry a single request at a time.  The
+ * LDAP protocol matches responses to requests by message identifier, and the JNDI
+ * provider allows the contexts that are derived from the same context to have requests
+ * outstanding on the shared connection at the same time.
+ * <p>
+ * Each borrow derives a new context from the least loaded shared connection, and the
+ * derived context is released when it is closed.  A new shared connection is opened when
+ * all open connections carry the maximum number of concurrent requests, up to the maximum
+ * number of connections.  A shared connection that experiences a connectivity error is
+ * retired once its outstanding requests complete, and is replaced on demand.  A new shared
+ * connection is opened outside the lock of the multiplexer, so that requests continue to
+ * be served by the open connections while it connects.  A shared connection that carries
+ * no requests may be validated in the background, and is retired if it fails to validate.
+ * <p>
+ * A request on a shared connection is not aborted when its {@code Deadline} expires, as
+ * the shared connection carries the requests of other callers too.  Only the time limit
+ * that is sent with a search bounds it.
+ * @author Melior
+ * @since 2.3
+ */
+class ConnectionMultiplexer {
+
+    private ConnectionFactory connectionFactory;
+
+    private LdapClientConfig configuration;
+
+    private PoolStatistics statistics;
+
+    private int requestsPerConnection;
+
+    private Channel[] channels;
+
+    private boolean[] opening;
+
+    private Semaphore permits;
+
+    /**
+     * Constructor.
+     * @param configuration The client configuration
+     * @param connectionFactory The factory with which to open the shared connections
+     * @param statistics The statistics of the connection pool
+     */
+    ConnectionMultiplexer(
+        final LdapClientConfig configuration,
+        final ConnectionFactory connectionFactory,
+        final PoolStatistics statistics) {
+
+        super();
+
+        this.configuration = configuration;
+
+        this.connectionFactory = connectionFactory;
+
+        this.statistics = statistics;
+
+        this.requestsPerConnection = configuration.getMultiplexedRequests();
+
+        this.channels = new Channel[Math.max(1, configuration.getMaximumConnections())];
+
+        this.opening = new boolean[channels.length];
+
+        this.permits = new Semaphore(channels.length * requestsPerConnection, true);
+    }
+
+    /**
+     * Open shared connections up to the supplied number.
+     * @param count The number of shared connections to open
+     * @throws RemotingException if unable to open a shared connection
+     */
+    void open(
+        final int count) throws RemotingException {
+
+        for (int i = 0; i < Math.min(count, channels.length); i++) {
+
+            synchronized (this) {
+
+                if ((opening[i] == true) || ((channels[i] != null) && (channels[i].broken == false))) {
+                    continue;
+                }
+
+                opening[i] = true;
+            }
+
+            replace(i, 0);
+        }
+
+    }
+
+    /**
+     * Validate the shared connections that carry no requests, by reading the root DSE
+     * without any attributes.  A shared connection that fails to validate within the
+     * supplied timeout is retired, and is replaced on demand.
+     * @param watchdog The scheduler on which to close a shared connection that does not respond
+     * @param timeout The amount of time to allow for a shared connection to validate, in milliseconds
+     * @return The number of shared connections that failed to validate
+     */
+    int validate(
+        final ScheduledExecutorService watchdog,
+        final long timeout) {
+
+        Channel channel;
+        int failed = 0;
+
+        for (int i = 0; i < channels.length; i++) {
+
+            synchronized (this) {
+
+                channel = channels[i];
+
+                if ((channel == null) || (channel.broken == true) || (channel.requests.get() > 0)) {
+                    continue;
+                }
+
+                channel.requests.incrementAndGet();
+            }
+
+            if (validate(channel, watchdog, timeout) == false) {
+                failed++;
+            }
+
+        }
+
+        return failed;
+    }
+
+    /**
+     * Validate shared connection that has been reserved for the validation, and release
+     * the reservation.
+     * @param channel The shared connection
+     * @param watchdog The scheduler on which to close the shared connection if it does not respond
+     * @param timeout The amount of time to allow for the shared connection to validate, in milliseconds
+     * @return true if the shared connection is valid, false otherwise
+     */
+    private boolean validate(
+        final Channel channel,
+        final ScheduledExecutorService watchdog,
+        final long timeout) {
+
+        ScheduledFuture<?> expiry;
+
+        expiry = watchdog.schedule(() -> ExceptionUtil.swallow(channel.context::close), timeout, TimeUnit.MILLISECONDS);
+
+        try {
+
+            channel.context.getAttributes("", new String[] {"1.1"});
+        }
+        catch (Exception exception) {
+
+            channel.broken = true;
+        }
+        finally {
+
+            expiry.cancel(false);
+
+            if ((channel.requests.decrementAndGet() == 0) && (channel.broken == true)) {
+                retire(channel);
+            }
+
+        }
+
+        return (channel.broken == false);
+    }
+
+    /**
+     * Get context that is derived from a shared connection.  The context must be closed
+     * to release it.  Waits for up to the connection timeout, or until the deadline of the
+     * request expires if that is sooner, when all shared connections carry the maximum
+     * number of concurrent requests.
+     * @return The context
+     */
+    DirContext getContext() {
+
+        Channel channel = null;
+        LdapContext context;
+
+        try {
+
+            if (permits.tryAcquire((Deadline.current() == null) ? configuration.getConnectionTimeout()
+                : Math.min(configuration.getConnectionTimeout(), Deadline.current().remaining(TimeUnit.MILLISECONDS)),
+                TimeUnit.MILLISECONDS) == false) {
+                throw new UncategorizedLdapException("Timed out waiting for a multiplexed connection.");
+            }
+
+        }
+        catch (InterruptedException exception) {
+
+            Thread.currentThread().interrupt();
+
+            throw new UncategorizedLdapException("Interrupted while waiting for a multiplexed connection.");
+        }
+
+        try {
+
+            channel = select();
+
+            context = channel.context.newInstance(null);
+        }
+        catch (Exception exception) {
+
+            if (channel != null) {
+                release(channel);
+            }
+            else {
+                permits.release();
+            }
+
+            throw new UncategorizedLdapException("Failed to get multiplexed connection: " + exception.getMessage(), exception);
+        }
+
+        return wrap(channel, context);
+    }
+
+    /**
+     * Select the least loaded shared connection that has capacity for another request,
+     * opening a new shared connection only when all open connections are at capacity
+     * and the maximum has not been reached.  The selected connection is reserved for
+     * the request.  When every connection is at capacity and the remaining slots are
+     * being opened by other requests, waits for one of them to open.
+     * @return The shared connection
+     * @throws RemotingException if unable to open a new shared connection, or if interrupted
+     */
+    private Channel select() throws RemotingException {
+
+        Channel selected;
+        int free;
+        boolean pending;
+
+        synchronized (this) {
+
+            while (true) {
+
+                selected = null;
+                free = -1;
+                pending = false;
+
+                for (int i = 0; i < channels.length; i++) {
+
+                    if (opening[i] == true) {
+
+                        pending = true;
+                    }
+                    else if ((channels[i] == null) || (channels[i].broken == true)) {
+
+                        if (free < 0) {
+                            free = i;
+                        }
+
+                    }
+                    else if ((channels[i].requests.get() < requestsPerConnection)
+                        && ((selected == null) || (channels[i].requests.get() < selected.requests.get()))) {
+                        selected = channels[i];
+                    }
+
+                }
+
+                if (selected != null) {
+
+                    selected.requests.incrementAndGet();
+
+                    return selected;
+                }
+
+                if (free >= 0) {
+
+                    opening[free] = true;
+
+                    break;
+                }
+
+                if (pending == false) {
+                    throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "No multiplexed connection available.");
+                }
+
+                try {
+
+                    wait();
+                }
+                catch (InterruptedException exception) {
+
+                    Thread.currentThread().interrupt();
+
+                    throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "Interrupted while waiting for a multiplexed connection.", exception);
+                }
+
+            }
+
+        }
+
+        return replace(free, 1);
+    }
+
+    /**
+     * Open a new shared connection in the supplied slot, which has been reserved for the
+     * purpose, replacing a broken one.  The connection is opened outside the lock of the
+     * multiplexer.  The broken connection is closed by the last request that completes on it.
+     * @param slot The slot
+     * @param requests The number of requests to reserve on the new shared connection
+     * @return The new shared connection
+     * @throws RemotingException if unable to open the shared connection
+     */
+    private Channel replace(
+        final int slot,
+        final int requests) throws RemotingException {
+
+        Channel channel = null;
+
+        try {
+
+            channel = new Channel((LdapContext) connectionFactory.openContext(configuration));
+            channel.requests.set(requests);
+
+            statistics.connectionCreated();
+
+            return channel;
+        }
+        finally {
+
+            synchronized (this) {
+
+                if (channel != null) {
+                    channels[slot] = channel;
+                }
+
+                opening[slot] = false;
+
+                notifyAll();
+            }
+
+        }
+
+    }
+
+    /**
+     * Release a request from a shared connection.  A broken shared connection is closed
+     * when its last outstanding request completes.
+     * @param channel The shared connection
+     */
+    private void release(
+        final Channel channel) {
+
+        if ((channel.requests.decrementAndGet() == 0) && (channel.broken == true)) {
+            retire(channel);
+        }
+
+        permits.release();
+    }
+
+    /**
+     * Close the shared connections.  A shared connection that carries requests is closed
+     * when its last outstanding request completes.
+     */
+    synchronized void close() {
+
+        for (Channel channel : channels) {
+
+            if (channel != null) {
+
+                channel.broken = true;
+
+                if (channel.requests.get() == 0) {
+                    retire(channel);
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Close a broken shared connection, once only.
+     * @param channel The shared connection
+     */
+    private void retire(
+        final Channel channel) {
+
+        if (channel.closed.compareAndSet(false, true) == true) {
+
+            ExceptionUtil.swallow(channel.context::close);
+
+            statistics.connectionDestroyed();
+        }
+
+    }
+
+    /**
+     * Wrap derived context in a proxy that releases the request from the shared connection
+     * when the context is closed, and that marks the shared connection as broken when a
+     * request fails with a connectivity error.
+     * @param channel The shared connection
+     * @param context The derived context
+     * @return The proxy
+     */
+    private DirContext wrap(
+        final Channel channel,
+        final LdapContext context) {
+
+        AtomicBoolean released;
+
+        released = new AtomicBoolean();
+
+        return (DirContext) Proxy.newProxyInstance(LdapContext.class.getClassLoader(), new Class<?>[] {LdapContext.class},
+            (proxy, method, args) -> {
+
+                if (method.getName().equals("close") == true) {
+
+                    if (released.compareAndSet(false, true) == true) {
+
+                        ExceptionUtil.swallow(context::close);
+
+                        statistics.connectionReleased();
+
+                        release(channel);
+                    }
+
+                    return null;
+                }
+
+                try {
+
+                    return method.invoke(context, args);
+                }
+                catch (InvocationTargetException exception) {
+
+                    if ((exception.getCause() instanceof CommunicationException)
+                        || (exception.getCause() instanceof ServiceUnavailableException)) {
+                        channel.broken = true;
+                    }
+
+                    throw exception.getCause();
+                }
+
+            });
+    }
+
+    /**
+     * A shared connection, and the number of requests that are outstanding on it.
+     */
+    private static final class Channel {
+
+        private LdapContext context;
+
+        private AtomicInteger requests;
+
+        private AtomicBoolean closed;
+
+        private volatile boolean broken;
+
+        /**
+         * Constructor.
+         * @param context The context of the shared connection
+         */
+        Channel(
+            final LdapContext context) {
+
+            super();
+
+            this.context = context;
+
+            this.requests = new AtomicInteger();
+
+            this.closed = new AtomicBoolean();
+        }
+
+    }
+
+}
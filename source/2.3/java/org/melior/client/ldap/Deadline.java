@@ -0,0 +1,134 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a request of an {@code LdapClient} must complete.  A deadline
+ * is typically derived from the remaining time budget of the caller, and is passed along
+ * with the request.  A search is sent with a time limit that does not exceed the time
+ * remaining, so that the LDAP server stops working on the search when the deadline
+ * expires.  A request that is still outstanding when the deadline expires is aborted,
+ * and its connection is closed and replaced, so that the timed out request does not
+ * keep using the LDAP server or the connection pool.  A request on a multiplexed
+ * connection is not aborted, as the connection is shared with other callers, and is
+ * bounded only by the time limit of the search.
+ * @author Melior
+ * @since 2.3
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+    private long expiry;
+
+    /**
+     * Constructor.
+     * @param expiry The expiry, on the scale of {@code System.nanoTime()}
+     */
+    private Deadline(
+        final long expiry) {
+
+        super();
+
+        this.expiry = expiry;
+    }
+
+    /**
+     * Create deadline that expires after the supplied duration.
+     * @param duration The duration
+     * @param unit The unit of the duration
+     * @return The deadline
+     */
+    public static Deadline after(
+        final long duration,
+        final TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+
+    /**
+     * Create deadline that expires after the supplied duration.
+     * @param duration The duration
+     * @return The deadline
+     */
+    public static Deadline after(
+        final Duration duration) {
+        return after(duration.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get time remaining until the deadline expires.
+     * @param unit The unit in which to express the time remaining
+     * @return The time remaining, which is zero or negative once the deadline has expired
+     */
+    public long remaining(
+        final TimeUnit unit) {
+        return unit.convert(expiry - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Check whether the deadline has expired.
+     * @return true if the deadline has expired, false otherwise
+     */
+    public boolean isExpired() {
+        return expiry - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Get deadline that applies to the requests of the current thread.
+     * @return The deadline, or null if there is none
+     */
+    static Deadline current() {
+        return current.get();
+    }
+
+    /**
+     * Apply deadline to the requests of the current thread.  When a deadline already
+     * applies, the earlier of the two deadlines applies.
+     * @param deadline The deadline
+     * @return The deadline that applied before, which must be restored with {@code exit}
+     */
+    static Deadline enter(
+        final Deadline deadline) {
+
+        Deadline previous;
+
+        previous = current.get();
+
+        current.set(((previous == null) || (deadline.expiry - previous.expiry < 0)) ? deadline : previous);
+
+        return previous;
+    }
+
+    /**
+     * Restore deadline that applied to the requests of the current thread before.
+     * @param previous The deadline that was returned by {@code enter}
+     */
+    static void exit(
+        final Deadline previous) {
+
+        if (previous == null) {
+            current.remove();
+        }
+        else {
+            current.set(previous);
+        }
+
+    }
+
+    /**
+     * Get string representation of the deadline.
+     * @return The time remaining until the deadline expires
+     */
+    public String toString() {
+        return "Deadline[remaining=" + remaining(TimeUnit.MILLISECONDS) + " ms]";
+    }
+
+}
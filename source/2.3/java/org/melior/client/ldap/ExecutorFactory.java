@@ -0,0 +1,256 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the bounded executors on which the asynchronous requests of an
+ * {@code LdapClient} are dispatched, and the scheduler on which its background
+ * maintenance tasks run.  When virtual threads are requested and the runtime supports
+ * them, each request runs on a virtual thread of its own, and the number of requests in
+ * flight is bounded instead of the number of threads.  Otherwise the requests run on a
+ * pool of platform threads.
+ * @author Melior
+ * @since 2.3
+ */
+class ExecutorFactory {
+
+    /**
+     * Constructor.
+     */
+    private ExecutorFactory() {
+
+        super();
+    }
+
+    /**
+     * Create bounded executor.  Requests beyond the capacity of the queue are rejected.
+     * With virtual threads, which are not pooled, the number of threads and the size of
+     * the queue together bound the number of requests in flight, and requests beyond that
+     * bound are rejected.
+     * @param name The name to use as the prefix for the thread names
+     * @param threads The maximum number of threads
+     * @param queueSize The maximum number of requests that may be queued
+     * @param virtualThreads true if virtual threads must be used when available, false otherwise
+     * @return The executor
+     */
+    static ExecutorService create(
+        final String name,
+        final int threads,
+        final int queueSize,
+        final boolean virtualThreads) {
+
+        ExecutorService virtualExecutor;
+        ThreadPoolExecutor executor;
+
+        virtualExecutor = (virtualThreads == true) ? getVirtualThreadExecutor(name) : null;
+
+        if (virtualExecutor != null) {
+            return new BoundedExecutor(virtualExecutor, threads + Math.max(0, queueSize));
+        }
+
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), getPlatformThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    /**
+     * Create scheduler with a single daemon thread, for background maintenance tasks.
+     * @param name The name to use as the prefix for the thread name
+     * @return The scheduler
+     */
+    static ScheduledExecutorService createScheduler(
+        final String name) {
+
+        ScheduledThreadPoolExecutor scheduler;
+
+        scheduler = new ScheduledThreadPoolExecutor(1, getPlatformThreadFactory(name));
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        scheduler.setRemoveOnCancelPolicy(true);
+
+        return scheduler;
+    }
+
+    /**
+     * Get factory for daemon platform threads.
+     * @param name The name to use as the prefix for the thread names
+     * @return The thread factory
+     */
+    private static ThreadFactory getPlatformThreadFactory(
+        final String name) {
+
+        AtomicInteger threadNumber;
+
+        threadNumber = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Get executor that starts a new virtual thread for each task.  The executor is
+     * resolved reflectively, as virtual threads are only available from Java 21 onwards.
+     * @param name The name to use as the prefix for the thread names
+     * @return The executor, or null if the runtime does not support virtual threads
+     */
+    private static ExecutorService getVirtualThreadExecutor(
+        final String name) {
+
+        Class<?> builderType;
+        Object builder;
+        Method nameMethod;
+        Method factoryMethod;
+        ThreadFactory threadFactory;
+
+        try {
+
+            builderType = Class.forName("java.lang.Thread$Builder");
+            nameMethod = builderType.getMethod("name", String.class, long.class);
+            factoryMethod = builderType.getMethod("factory");
+
+            builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = nameMethod.invoke(builder, name + "-", 1L);
+            threadFactory = (ThreadFactory) factoryMethod.invoke(builder);
+
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, threadFactory);
+        }
+        catch (Exception exception) {
+            return null;
+        }
+
+    }
+
+    /**
+     * Bounds the number of tasks in flight on an executor that does not bound them
+     * itself.  A task that would exceed the bound is rejected.
+     */
+    private static final class BoundedExecutor extends AbstractExecutorService {
+
+        private ExecutorService delegate;
+
+        private Semaphore permits;
+
+        /**
+         * Constructor.
+         * @param delegate The executor on which the tasks run
+         * @param limit The maximum number of tasks in flight
+         */
+        BoundedExecutor(
+            final ExecutorService delegate,
+            final int limit) {
+
+            super();
+
+            this.delegate = delegate;
+            this.permits = new Semaphore(Math.max(1, limit));
+        }
+
+        /**
+         * Execute task.
+         * @param task The task
+         * @throws RejectedExecutionException if the bound is reached, or the executor has been shut down
+         */
+        public void execute(
+            final Runnable task) {
+
+            if (permits.tryAcquire() == false) {
+                throw new RejectedExecutionException("Maximum number of tasks in flight reached.");
+            }
+
+            try {
+
+                delegate.execute(() -> {
+
+                    try {
+
+                        task.run();
+                    }
+                    finally {
+                        permits.release();
+                    }
+
+                });
+
+            }
+            catch (RuntimeException exception) {
+
+                permits.release();
+
+                throw exception;
+            }
+
+        }
+
+        /**
+         * Shut down executor.  Tasks in flight run to completion.
+         */
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        /**
+         * Shut down executor and interrupt the tasks in flight.
+         * @return The tasks that never started
+         */
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        /**
+         * Get shut down indicator.
+         * @return true if the executor has been shut down, false otherwise
+         */
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        /**
+         * Get terminated indicator.
+         * @return true if all tasks have completed after shut down, false otherwise
+         */
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        /**
+         * Wait for all tasks to complete after shut down.
+         * @param timeout The maximum time to wait
+         * @param unit The time unit of the timeout
+         * @return true if the executor terminated, false if the timeout elapsed first
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public boolean awaitTermination(
+            final long timeout,
+            final TimeUnit unit) throws InterruptedException {
+
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+    }
+
+}
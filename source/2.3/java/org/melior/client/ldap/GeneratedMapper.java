@@ -0,0 +1,101 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+
+/**
+ * Direct accessor for the {@code LdapProperty} members of an entity type, generated at
+ * compile time by the {@code LdapMapperProcessor}.  The generated accessor is named after
+ * the entity type with the suffix {@code _LdapMapper}, and is placed in the package of the
+ * entity type.  When the accessor exists, the mapping plan of the entity type reads and
+ * writes the members through it instead of through reflection.
+ * <p>
+ * Members are identified by their name, which is the field name for a field and the
+ * method name followed by {@code ()} for a method.  Members that the accessor cannot reach,
+ * such as private fields without bean accessors, are not indexed, and are reached through
+ * reflection instead.
+ * <p>
+ * Members of primitive types may also be written without boxing, through the primitive
+ * setters.
+ * @author Melior
+ * @since 2.3
+ * @see org.melior.client.ldap.processor.LdapMapperProcessor
+ * @param <T> The entity type
+ */
+public interface GeneratedMapper<T> {
+
+    /**
+     * Create new instance of entity type.
+     * @return The new instance
+     */
+    T newInstance();
+
+    /**
+     * Get index of member.
+     * @param member The member name
+     * @return The index of the member, or -1 if the member is not accessible through this accessor
+     */
+    int indexOf(
+        final String member);
+
+    /**
+     * Write value to member of instance.
+     * @param instance The instance
+     * @param index The index of the member
+     * @param value The value
+     */
+    void set(
+        final T instance,
+        final int index,
+        final Object value);
+
+    /**
+     * Write integer to member of instance, which is of type {@code long}, {@code int},
+     * {@code short} or {@code byte}.
+     * @param instance The instance
+     * @param index The index of the member
+     * @param value The value, which is within the range of the member type
+     */
+    void setLong(
+        final T instance,
+        final int index,
+        final long value);
+
+    /**
+     * Write real number to member of instance, which is of type {@code double} or {@code float}.
+     * @param instance The instance
+     * @param index The index of the member
+     * @param value The value
+     */
+    void setDouble(
+        final T instance,
+        final int index,
+        final double value);
+
+    /**
+     * Write boolean to member of instance, which is of type {@code boolean}.
+     * @param instance The instance
+     * @param index The index of the member
+     * @param value The value
+     */
+    void setBoolean(
+        final T instance,
+        final int index,
+        final boolean value);
+
+    /**
+     * Read value from member of instance.
+     * @param instance The instance
+     * @param index The index of the member
+     * @return The value
+     */
+    Object get(
+        final T instance,
+        final int index);
+
+}
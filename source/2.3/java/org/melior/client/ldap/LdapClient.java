@@ -7,16 +7,50 @@
         Service Harness
 */
 package org.melior.client.ldap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.naming.Name;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.SortKey;
 import javax.net.ssl.SSLContext;
 import org.melior.client.exception.RemotingException;
+import org.melior.client.ssl.ClientSSLContext;
 import org.melior.logging.core.Logger;
 import org.melior.logging.core.LoggerFactory;
 import org.melior.service.exception.ExceptionType;
+import org.melior.util.exception.ExceptionUtil;
 import org.melior.util.time.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.ldap.SizeLimitExceededException;
+import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.DirContextProcessor;
 import org.springframework.ldap.core.DirContextOperations;
 import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.core.NameClassPairCallbackHandler;
+import org.springframework.ldap.core.support.SingleContextSource;
 import org.springframework.ldap.query.LdapQuery;
 import org.springframework.util.StringUtils;
 
@@ -28,33 +62,82 @@ import org.springframework.util.StringUtils;
  * to the LDAP server.  The client automatically converts any exception that
  * occurs during communication with the LDAP server into a standard
  * {@code RemotingException}.
+ * <p>
+ * When an {@code LdapMetrics} instance is supplied, the client also reports the latency
+ * and outcome of each request, the number of entries returned, the time spent mapping
+ * entries, and the statistics of its connection pools.
+ * <p>
+ * The client initializes itself on first use, unless eager initialization is enabled,
+ * in which case it initializes and opens the minimum number of connections while the
+ * application starts, and keeps the pools filled to the minimum in the background.
+ * Initialization happens once, even when the first requests arrive concurrently.  When
+ * the client is destroyed, its background threads are stopped, its change feeds and
+ * shared connections are closed, and it rejects any further requests.
  * @author Melior
  * @since 2.3
  */
-public class LdapClient extends LdapClientConfig {
+public class LdapClient extends LdapClientConfig implements InitializingBean, DisposableBean {
 
     private Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private boolean ssl;
 
+    private boolean startTls;
+
     private SSLContext sslContext;
+
+    private boolean lenient;
+
+    private ConnectionManager connectionManager;
+
+    private volatile ConnectionManager bindManager;
 
-    private LdapTemplate ldapTemplate;
+    private volatile LdapTemplate ldapTemplate;
+
+    private volatile boolean closed;
+
+    private ExecutorService executor;
+
+    private ExecutorService bulkExecutor;
+
+    private SnapshotRegistry snapshots;
+
+    private Map<Class<?>, LdapObjectMapper<?>> mappers = new ConcurrentHashMap<Class<?>, LdapObjectMapper<?>>();
+
+    private SearchCache searchCache;
+
+    private RequestCoalescer requestCoalescer;
+
+    private LdapMetrics metrics;
+
+    private ScheduledExecutorService scheduler;
+
+    private CompletableFuture<Void> readiness = new CompletableFuture<Void>();
+
+    private Set<ChangeFeed<?>> changeFeeds = ConcurrentHashMap.newKeySet();
 
     /**
      * Constructor.
      * @param ssl The SSL indicator
+     * @param startTls The StartTLS indicator
      * @param sslContext The SSL context
+     * @param metrics The metrics to which to report measurements
      */
     LdapClient(
         final boolean ssl,
-        final SSLContext sslContext) {
+        final boolean startTls,
+        final SSLContext sslContext,
+        final LdapMetrics metrics) {
 
         super();
 
         this.ssl = ssl;
+
+        this.startTls = startTls;
 
         this.sslContext = sslContext;
+
+        this.metrics = metrics;
     }
 
     /**
@@ -70,16 +153,61 @@ public class LdapClient extends LdapClientConfig {
     }
 
     /**
-     * Initialize client.
+     * Initialize client at startup, if eager initialization is enabled.  The minimum
+     * number of connections are opened in parallel, and startup waits until they are
+     * open, so that the application does not report ready before the client is.  A
+     * failure to open the connections does not fail startup, but leaves the client not
+     * ready until the background refill succeeds.
      * @throws RemotingException if unable to initialize the client
      */
+    public void afterPropertiesSet() throws RemotingException {
+
+        String methodName = "afterPropertiesSet";
+
+        if (isEagerInitialization() == false) {
+            return;
+        }
+
+        initialize();
+
+        logger.debug(methodName, "Open connections to LDAP repository.  minimum = ", getMinimumConnections());
+
+        refill();
+    }
+
+    /**
+     * Initialize client, once only.
+     * @throws RemotingException if unable to initialize the client, or if the client is closed
+     */
     private void initialize() throws RemotingException {
 
-        ConnectionManager connectionManager;
-
-        if (ldapTemplate != null) {
+        if ((ldapTemplate != null) && (closed == false)) {
             return;
         }
+
+        synchronized (this) {
+
+            if (closed == true) {
+                throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "Client is closed.");
+            }
+
+            if (ldapTemplate == null) {
+                createClient();
+            }
+
+        }
+
+    }
+
+    /**
+     * Create the connection managers, executors and template of the client.  The template
+     * is published last, so that a thread that finds it set also finds the rest of the
+     * client set.
+     * @throws RemotingException if unable to create the client
+     */
+    private void createClient() throws RemotingException {
+
+        LdapTemplate template;
 
         if (StringUtils.hasLength(getUrl()) == false) {
             throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "URL must be configured.");
@@ -92,16 +220,265 @@ public class LdapClient extends LdapClientConfig {
         if (StringUtils.hasLength(getPassword()) == false) {
             throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "Password must be configured.");
         }
+
+        if ((sslContext == null) && ((ssl == true) || (startTls == true))) {
+            sslContext = LdapSocketFactory.configureSessions(ClientSSLContext.ofLenient("TLS"), this);
+            lenient = true;
+        }
+
+        if ((isDirtyTracking() == true) && ((getCacheSize() > 0) || (isRequestCoalescing() == true))) {
+            throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "Dirty tracking cannot be combined with the search cache or request coalescing.");
+        }
 
-        connectionManager = new ConnectionManager(this, new ConnectionFactory(ssl, sslContext, this));
+        try {
+
+            connectionManager = new ConnectionManager(this, new ConnectionFactory(ssl, startTls, sslContext, lenient, this), createReadManager(), metrics);
+        }
+        catch (IllegalArgumentException exception) {
+            throw new RemotingException(ExceptionType.LOCAL_APPLICATION, exception.getMessage(), exception);
+        }
+
+        snapshots = (isDirtyTracking() == true) ? new SnapshotRegistry() : null;
+
+        searchCache = (getCacheSize() > 0) ? new SearchCache(getCacheSize(), getCacheTimeToLive(), getNegativeCacheTimeToLive()) : null;
+
+        requestCoalescer = (isRequestCoalescing() == true) ? new RequestCoalescer(getRequestTimeout()) : null;
+
+        executor = ExecutorFactory.create((getName() == null) ? "ldap" : "ldap-" + getName(), getAsyncThreads(), getAsyncQueueSize(), isVirtualThreads());
 
-        ldapTemplate = new LdapTemplate();
-        ldapTemplate.setContextSource(connectionManager);
-        ldapTemplate.setDefaultTimeLimit(getRequestTimeout());
+        template = new LdapTemplate();
+        template.setContextSource(connectionManager);
+        template.setDefaultTimeLimit(getRequestTimeout());
+
+        if ((isEagerInitialization() == true) || (getKeepaliveInterval() > 0)) {
+            scheduler = ExecutorFactory.createScheduler((getName() == null) ? "ldap-maintenance" : "ldap-" + getName() + "-maintenance");
+        }
+
+        if (isEagerInitialization() == true) {
+
+            scheduler.scheduleWithFixedDelay(this::refill, Math.max(1000, getPruneInterval()), Math.max(1000, getPruneInterval()), TimeUnit.MILLISECONDS);
+        }
+        else {
+
+            readiness.complete(null);
+        }
+
+        if (getKeepaliveInterval() > 0) {
+            scheduler.scheduleWithFixedDelay(this::keepalive, getKeepaliveInterval(), getKeepaliveInterval(), TimeUnit.MILLISECONDS);
+        }
+
+        ldapTemplate = template;
+    }
+
+    /**
+     * Destroy client.  The background maintenance is stopped, the open change feeds are
+     * closed, the shared connections are closed, and the executor and the schedulers of
+     * the connection pools are shut down.  The client rejects any further requests.
+     */
+    public void destroy() {
+
+        String methodName = "destroy";
+
+        synchronized (this) {
+
+            if (closed == true) {
+                return;
+            }
+
+            closed = true;
+        }
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+
+        for (ChangeFeed<?> changeFeed : changeFeeds) {
+            changeFeed.close();
+        }
+
+        changeFeeds.clear();
+
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+
+        if (bindManager != null) {
+            bindManager.close();
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        synchronized (this) {
+
+            if (bulkExecutor != null) {
+                bulkExecutor.shutdownNow();
+            }
+
+        }
+
+        logger.debug(methodName, "LDAP client closed.");
+    }
+
+    /**
+     * Fill connection pools up to the minimum number of connections.  The client is
+     * marked ready when the pools are filled for the first time.
+     */
+    private void refill() {
+
+        String methodName = "refill";
+
+        try {
+
+            connectionManager.fill(executor).join();
+
+            readiness.complete(null);
+        }
+        catch (Exception exception) {
+
+            logger.debug(methodName, "Failed to fill connection pool: ", exception.getMessage());
+        }
+
+    }
+
+    /**
+     * Validate the idle connections of the connection pools, so that connections that
+     * were dropped while idle, such as by a firewall, are evicted before a request borrows
+     * them.  The connection pools are then filled up to the minimum number of connections
+     * again, so that the evicted connections are replaced ahead of demand.
+     */
+    private void keepalive() {
+
+        String methodName = "keepalive";
+        int failed;
+
+        try {
+
+            failed = connectionManager.validate(executor)
+                .thenCombine((bindManager == null) ? CompletableFuture.completedFuture(0) : bindManager.validate(executor), Integer::sum)
+                .join();
+
+            if (failed > 0) {
+                logger.debug(methodName, "Idle connections evicted.  Count = ", failed);
+            }
+
+            connectionManager.fill(executor).join();
+        }
+        catch (Exception exception) {
+
+            logger.debug(methodName, "Failed to validate connection pool: ", exception.getMessage());
+        }
+
+    }
+
+    /**
+     * Check whether client is ready.  A client that initializes on first use is ready
+     * once it is initialized, while a client that initializes eagerly is ready once its
+     * connection pools have been filled to the minimum.
+     * @return true if the client is ready, false otherwise
+     */
+    public boolean isReady() {
+        return readiness.isDone();
+    }
+
+    /**
+     * Get readiness of client.
+     * @return The future that completes when the client is ready
+     */
+    public CompletableFuture<Void> getReadiness() {
+        return readiness;
+    }
+
+    /**
+     * Create connection manager of read pool.
+     * @return The connection manager of the read pool, or null if no read pool is configured
+     * @throws RemotingException if unable to create the connection manager
+     */
+    private ConnectionManager createReadManager() throws RemotingException {
+
+        if (StringUtils.hasLength(getRead().getUrl()) == false) {
+            return null;
+        }
+
+        return createPoolManager(getRead(), "read");
+    }
+
+    /**
+     * Get connection manager of bind pool.  The bind pool is created on first use, and
+     * connects to the URL of the main pool unless a URL is configured for the bind pool.
+     * The requests of the bind pool are never multiplexed, as a bind changes the identity
+     * of the whole connection, and are not subject to a concurrency limit.
+     * @return The connection manager of the bind pool
+     * @throws RemotingException if unable to create the connection manager
+     */
+    private synchronized ConnectionManager getBindManager() throws RemotingException {
+
+        if (closed == true) {
+            throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "Client is closed.");
+        }
+
+        if (bindManager == null) {
+
+            if (StringUtils.hasLength(getBind().getUrl()) == false) {
+                getBind().setUrl(getUrl());
+            }
+
+            getBind().setMultiplexedRequests(1);
+            getBind().setAdaptiveConcurrency(false);
+
+            bindManager = createPoolManager(getBind(), "bind");
+        }
+
+        return bindManager;
+    }
+
+    /**
+     * Create connection manager of a secondary pool.  The pool inherits the credentials
+     * of the main pool when none are configured for it.
+     * @param poolConfig The configuration of the pool
+     * @param poolName The name of the pool, which is appended to the name of the client
+     * @return The connection manager of the pool
+     * @throws RemotingException if unable to create the connection manager
+     */
+    private ConnectionManager createPoolManager(
+        final LdapClientConfig poolConfig,
+        final String poolName) throws RemotingException {
+
+        if (StringUtils.hasLength(poolConfig.getName()) == false) {
+            poolConfig.setName((getName() == null) ? poolName : getName() + "-" + poolName);
+        }
+
+        if (StringUtils.hasLength(poolConfig.getUsername()) == false) {
+            poolConfig.setUsername(getUsername());
+        }
+
+        if (StringUtils.hasLength(poolConfig.getPassword()) == false) {
+            poolConfig.setPassword(getPassword());
+        }
+
+        if (poolConfig.getKeepaliveInterval() == 0) {
+            poolConfig.setKeepaliveInterval(getKeepaliveInterval() / 1000);
+        }
+
+        try {
+
+            return new ConnectionManager(poolConfig, new ConnectionFactory(ssl, startTls, sslContext, lenient, poolConfig), null, metrics);
+        }
+        catch (IllegalArgumentException exception) {
+            throw new RemotingException(ExceptionType.LOCAL_APPLICATION, exception.getMessage(), exception);
+        }
+
     }
 
     /**
-     * Perform search.
+     * Perform search.  If the search cache is enabled, then the result is served from
+     * the cache when an identical search was performed within the time to live of the
+     * cache.  If request coalescing is enabled, then concurrent identical searches share
+     * a single request to the LDAP server.  A cached or shared result holds the same
+     * instances for every caller that it is served to, which is why neither may be
+     * combined with dirty tracking, as the changes of one caller would otherwise leak
+     * into the results and the modifications of the others.
      * @param <T> The type
      * @param query The LDAP query
      * @param entityType The response entity type
@@ -113,95 +490,1653 @@ public class LdapClient extends LdapClientConfig {
         final Class<T> entityType) throws RemotingException {
 
         String methodName = "search";
-        Timer timer;
+        SearchCache.Key key = null;
+        long cacheGeneration = 0;
         List<T> result;
-        long duration;
 
         initialize();
 
         logger.debug(methodName, "Perform search in LDAP repository.  base = ", query.base(), ", filter = ", query.filter());
-
-        timer = Timer.ofNanos().start();
 
-        try {
-
-            result = ldapTemplate.search(query, LdapObjectMapper.of(entityType));
-
-            duration = timer.elapsedTime(TimeUnit.MILLISECONDS);
-
-            logger.debug(methodName, "Search completed successfully.  Duration = ", duration, " ms.");
+        if ((searchCache != null) || (requestCoalescer != null)) {
+            key = SearchCache.keyOf(query, entityType);
         }
-        catch (RuntimeException exception) {
-
-            duration = timer.elapsedTime(TimeUnit.MILLISECONDS);
-
-            logger.debug(methodName, "Search failed.  Duration = ", duration, " ms.");
-
-            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+
+        if (searchCache != null) {
+
+            result = searchCache.get(key);
+
+            if (result != null) {
+
+                logger.debug(methodName, "Search result served from cache.");
+
+                return result;
+            }
+
+            cacheGeneration = searchCache.getGeneration();
         }
-        catch (Exception exception) {
-
-            duration = timer.elapsedTime(TimeUnit.MILLISECONDS);
-
-            logger.debug(methodName, "Search failed.  Duration = ", duration, " ms.");
-
-            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Failed to perform search: " + exception.getMessage(), exception);
+
+        result = ((requestCoalescer != null) && (Deadline.current() == null))
+            ? requestCoalescer.execute(key, () -> executeSearch(query, entityType, null, "search"))
+            : executeSearch(query, entityType, null, "search");
+
+        if (searchCache != null) {
+            searchCache.put(key, result, cacheGeneration);
         }
 
         return result;
     }
 
     /**
-     * Perform modify.
+     * Perform search that must complete before the supplied deadline.  The search is sent
+     * with a time limit that does not exceed the time remaining, so that the LDAP server
+     * stops the search when the deadline expires.  If the search is still outstanding on
+     * a pooled connection when the deadline expires, then an LDAP abandon request is sent
+     * for it, the search fails, and the connection is replaced in the pool.  A search on
+     * a multiplexed connection relies on the time limit alone.  A search under a deadline
+     * does not wait for an identical search that is already in flight.
      * @param <T> The type
      * @param query The LDAP query
-     * @param instance The instance that provides the new attributes
-     * @throws RemotingException if unable to perform the modify
+     * @param entityType The response entity type
+     * @param deadline The deadline
+     * @return The search result
+     * @throws RemotingException if unable to perform the search before the deadline
      */
-    public <T> void modify(
+    public <T> List<T> search(
         final LdapQuery query,
-        final T instance) throws RemotingException {
-
-        String methodName = "modify";
-        Timer timer;
-        DirContextOperations context;
-        long duration;
-
+        final Class<T> entityType,
+        final Deadline deadline) throws RemotingException {
+        return withDeadline(deadline, () -> search(query, entityType));
+    }
+
+    /**
+     * Perform search, with the results sorted by the LDAP server.  The server side sort
+     * control of RFC 2891 is attached to the search, and the search fails if the LDAP
+     * server does not support it.  Sorted searches are not served from the search cache.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @param sortKeys The sort keys, in order of precedence
+     * @return The search result, in sort order
+     * @throws RemotingException if unable to perform the search
+     */
+    public <T> List<T> search(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final SortKey... sortKeys) throws RemotingException {
+
+        String methodName = "search";
+
         initialize();
 
-        logger.debug(methodName, "Perform modify in LDAP repository.  base = ", query.base(), ", filter = ", query.filter());
-
-        timer = Timer.ofNanos().start();
+        logger.debug(methodName, "Perform sorted search in LDAP repository.  base = ", query.base(), ", filter = ", query.filter());
+
+        return executeSearch(query, entityType, new SortedSearchProcessor(sortKeys), "sorted-search");
+    }
+
+    /**
+     * Perform search for a window of the results, as sorted by the LDAP server.  The
+     * server side sort control and the virtual list view control are attached to the
+     * search, so that the LDAP server sorts the full result, but returns only the
+     * requested window of it.  The search fails if the LDAP server does not support
+     * both controls.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @param offset The zero based offset of the first result in the window
+     * @param count The maximum number of results in the window
+     * @param sortKeys The sort keys, in order of precedence
+     * @return The window of results
+     * @throws RemotingException if unable to perform the search
+     */
+    public <T> SearchWindow<T> searchWindow(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final int offset,
+        final int count,
+        final SortKey... sortKeys) throws RemotingException {
+        return searchWindow(query, entityType, offset, count, null, sortKeys);
+    }
+
+    /**
+     * Perform search for a window of the results, as sorted by the LDAP server.  The
+     * context identifier of a previous window of the same search is returned to the
+     * LDAP server, which may use it to reuse the sorted result.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @param offset The zero based offset of the first result in the window
+     * @param count The maximum number of results in the window
+     * @param contextId The context identifier of a previous window, or null
+     * @param sortKeys The sort keys, in order of precedence
+     * @return The window of results
+     * @throws RemotingException if unable to perform the search
+     */
+    public <T> SearchWindow<T> searchWindow(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final int offset,
+        final int count,
+        final byte[] contextId,
+        final SortKey... sortKeys) throws RemotingException {
+
+        String methodName = "searchWindow";
+        SortedSearchProcessor processor;
+        List<T> result;
+
+        if (count <= 0) {
+            throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "Window must hold at least one result.");
+        }
+
+        initialize();
+
+        logger.debug(methodName, "Perform windowed search in LDAP repository.  base = ", query.base(), ", filter = ", query.filter(),
+            ", offset = ", offset, ", count = ", count);
 
         try {
-
-            context = ldapTemplate.searchForContext(query);
-
-            LdapObjectMapper.of(instance.getClass()).mapFromInstance(context, instance);
-
-            ldapTemplate.modifyAttributes(context);
-
-            duration = timer.elapsedTime(TimeUnit.MILLISECONDS);
-
-            logger.debug(methodName, "Modify completed successfully.  Duration = ", duration, " ms.");
+            processor = new SortedSearchProcessor(sortKeys, offset, count, contextId);
         }
-        catch (RuntimeException exception) {
-
-            duration = timer.elapsedTime(TimeUnit.MILLISECONDS);
-
-            logger.debug(methodName, "Modify failed.  Duration = ", duration, " ms.");
+        catch (IllegalArgumentException exception) {
+            throw new RemotingException(ExceptionType.LOCAL_APPLICATION, exception.getMessage(), exception);
+        }
+
+        result = executeSearch(query, entityType, processor, "window-search");
+
+        return new SearchWindow<T>(result, Math.max(0, processor.getTargetPosition() - 1), processor.getContentCount(), processor.getContextId());
+    }
+
+    /**
+     * Execute search against the LDAP server.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @param processor The processor for the request and response controls, or null
+     * @param operation The name of the operation, for the metrics
+     * @return The search result
+     * @throws RemotingException if unable to perform the search
+     */
+    private <T> List<T> executeSearch(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final DirContextProcessor processor,
+        final String operation) throws RemotingException {
+
+        String methodName = "search";
+        Timer timer;
+        TimedMapper<T> mapper;
+        List<T> result;
+        String base;
+        long duration;
+
+        timer = Timer.ofNanos().start();
+
+        base = query.base().toString();
+
+        try {
+
+            mapper = new TimedMapper<T>(getMapper(entityType));
+
+            if ((processor == null) && (Deadline.current() == null)) {
+
+                result = (mapper.isDnMapped() == true)
+                    ? ldapTemplate.search(query, (ContextMapper<T>) mapper)
+                    : ldapTemplate.search(query, (AttributesMapper<T>) mapper);
+            }
+            else if (processor == null) {
+
+                result = (mapper.isDnMapped() == true)
+                    ? ldapTemplate.search(query.base(), query.filter().encode(), getSearchControls(query), (ContextMapper<T>) mapper)
+                    : ldapTemplate.search(query.base(), query.filter().encode(), getSearchControls(query), (AttributesMapper<T>) mapper);
+            }
+            else {
+
+                result = (mapper.isDnMapped() == true)
+                    ? ldapTemplate.search(query.base(), query.filter().encode(), getSearchControls(query), (ContextMapper<T>) mapper, processor)
+                    : ldapTemplate.search(query.base(), query.filter().encode(), getSearchControls(query), (AttributesMapper<T>) mapper, processor);
+            }
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(operation, base, duration, null);
+            metrics.recordResultSize(operation, base, result.size());
+            metrics.recordMapping(operation, entityType, mapper.getMappingTime());
+
+            logger.debug(methodName, "Search completed successfully.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+        }
+        catch (RuntimeException exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(operation, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Search failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
 
             throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
         }
         catch (Exception exception) {
 
-            duration = timer.elapsedTime(TimeUnit.MILLISECONDS);
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
 
-            logger.debug(methodName, "Modify failed.  Duration = ", duration, " ms.");
+            metrics.recordRequest(operation, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Search failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
 
-            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Failed to perform modify: " + exception.getMessage(), exception);
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Failed to perform search: " + exception.getMessage(), exception);
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform search asynchronously.  The search is dispatched on the bounded executor
+     * of the client, and is subject to the same timing and exception handling as a
+     * synchronous search.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @return The future search result, which completes exceptionally with a
+     * {@code RemotingException} if unable to perform the search
+     */
+    public <T> CompletableFuture<List<T>> searchAsync(
+        final LdapQuery query,
+        final Class<T> entityType) {
+        return dispatch(() -> search(query, entityType));
+    }
+
+    /**
+     * Perform paged search, handing each result to the supplied consumer as it is
+     * retrieved.  The results are requested from the LDAP server one page at a time,
+     * with the page size that is configured for the client, so that only a single
+     * page of results is held in memory at any time.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @param consumer The consumer of the search results
+     * @throws RemotingException if unable to perform the search
+     */
+    public <T> void search(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final Consumer<? super T> consumer) throws RemotingException {
+        search(query, entityType, getPageSize(), consumer);
+    }
+
+    /**
+     * Perform paged search, handing each result to the supplied consumer as it is
+     * retrieved.  The results are requested from the LDAP server one page at a time,
+     * so that only a single page of results is held in memory at any time.  An exception
+     * that the consumer throws ends the search, and is thrown on to the caller as is.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @param pageSize The page size
+     * @param consumer The consumer of the search results
+     * @throws RemotingException if unable to perform the search
+     */
+    public <T> void search(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final int pageSize,
+        final Consumer<? super T> consumer) throws RemotingException {
+
+        String methodName = "search";
+        String operation = "paged-search";
+        Timer timer;
+        PagedSearch<T> pagedSearch = null;
+        RuntimeException consumerException = null;
+        T result;
+        String base;
+        int count = 0;
+        long duration;
+
+        initialize();
+
+        logger.debug(methodName, "Perform paged search in LDAP repository.  base = ", query.base(), ", filter = ", query.filter(), ", page size = ", pageSize);
+
+        timer = Timer.ofNanos().start();
+
+        base = query.base().toString();
+
+        try {
+
+            pagedSearch = openPagedSearch(query, entityType, pageSize);
+
+            while (pagedSearch.hasNext() == true) {
+
+                result = pagedSearch.next();
+
+                try {
+
+                    consumer.accept(result);
+                }
+                catch (RuntimeException exception) {
+
+                    consumerException = exception;
+
+                    throw exception;
+                }
+
+                count++;
+            }
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(operation, base, duration, null);
+            metrics.recordResultSize(operation, base, count);
+
+            logger.debug(methodName, "Paged search completed successfully.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+        }
+        catch (RuntimeException exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            if (exception == consumerException) {
+
+                metrics.recordRequest(operation, base, duration, ExceptionType.LOCAL_APPLICATION);
+
+                logger.debug(methodName, "Paged search ended by consumer.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+                throw exception;
+            }
+
+            metrics.recordRequest(operation, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Paged search failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+        }
+        catch (Exception exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(operation, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Paged search failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Failed to perform paged search: " + exception.getMessage(), exception);
+        }
+        finally {
+
+            if (pagedSearch != null) {
+                pagedSearch.close();
+            }
+
+        }
+
+    }
+
+    /**
+     * Perform paged search, returning the results as a stream.  The results are
+     * requested from the LDAP server one page at a time, with the page size that is
+     * configured for the client, as the stream is consumed.
+     * <p>
+     * The stream holds a pooled connection until it is closed, hence the stream must
+     * be closed once it has been consumed.  A failure to retrieve a subsequent page
+     * surfaces as an unchecked {@code NamingException} while the stream is consumed.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @return The stream of search results
+     * @throws RemotingException if unable to start the search
+     */
+    public <T> Stream<T> stream(
+        final LdapQuery query,
+        final Class<T> entityType) throws RemotingException {
+        return stream(query, entityType, getPageSize());
+    }
+
+    /**
+     * Perform paged search, returning the results as a stream.  The results are
+     * requested from the LDAP server one page at a time as the stream is consumed.
+     * <p>
+     * The stream holds a pooled connection until it is closed, hence the stream must
+     * be closed once it has been consumed.  A failure to retrieve a subsequent page
+     * surfaces as an unchecked {@code NamingException} while the stream is consumed.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @param pageSize The page size
+     * @return The stream of search results
+     * @throws RemotingException if unable to start the search
+     */
+    public <T> Stream<T> stream(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final int pageSize) throws RemotingException {
+
+        String methodName = "stream";
+        PagedSearch<T> pagedSearch;
+
+        initialize();
+
+        logger.debug(methodName, "Perform paged search in LDAP repository.  base = ", query.base(), ", filter = ", query.filter(), ", page size = ", pageSize);
+
+        try {
+
+            pagedSearch = openPagedSearch(query, entityType, pageSize);
+        }
+        catch (RuntimeException exception) {
+
+            logger.debug(methodName, "Paged search failed to start.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+        }
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pagedSearch, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(pagedSearch::close);
+    }
+
+    /**
+     * Open paged search on a connection that is borrowed from the pool.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @param pageSize The page size
+     * @return The paged search
+     */
+    private <T> PagedSearch<T> openPagedSearch(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final int pageSize) {
+
+        return new PagedSearch<T>(connectionManager.getReadOnlyContext(), query.base(), query.filter().encode(),
+            getSearchControls(query), getMapper(entityType), pageSize);
+    }
+
+    /**
+     * Get search cache.
+     * @return The search cache, or null if the search cache is not enabled or the
+     * client has not been initialized yet
+     */
+    public SearchCache getSearchCache() {
+        return searchCache;
+    }
+
+    /**
+     * Invalidate search cache, after a write to the LDAP server.
+     */
+    private void invalidateCache() {
+
+        if (searchCache != null) {
+            searchCache.invalidate();
+        }
+
+    }
+
+    /**
+     * Get object mapper for entity type.  The mapper tracks snapshots of the mapped
+     * instances if dirty tracking is enabled, and writes values in the form in which
+     * the binary attributes of the client declare them.
+     * @param <T> The type
+     * @param entityType The entity type
+     * @return The object mapper
+     */
+    @SuppressWarnings("unchecked")
+    private <T> LdapObjectMapper<T> getMapper(
+        final Class<T> entityType) {
+        return (LdapObjectMapper<T>) mappers.computeIfAbsent(entityType, type -> LdapObjectMapper.of(type, snapshots, getBinaryAttributes()));
+    }
+
+    /**
+     * Get search controls for query.  When the search is performed under a deadline, the
+     * time limit does not exceed the time remaining until the deadline expires.
+     * @param query The LDAP query
+     * @return The search controls
+     */
+    private SearchControls getSearchControls(
+        final LdapQuery query) {
+
+        SearchControls searchControls;
+        Deadline deadline;
+        long timeLimit;
+
+        timeLimit = (query.timeLimit() == null) ? getRequestTimeout() : query.timeLimit();
+
+        deadline = Deadline.current();
+
+        if (deadline != null) {
+            timeLimit = Math.max(1, (timeLimit == 0) ? deadline.remaining(TimeUnit.MILLISECONDS)
+                : Math.min(timeLimit, deadline.remaining(TimeUnit.MILLISECONDS)));
+        }
+
+        searchControls = new SearchControls();
+        searchControls.setSearchScope((query.searchScope() == null) ? SearchControls.SUBTREE_SCOPE : query.searchScope().getId());
+        searchControls.setTimeLimit((int) timeLimit);
+        searchControls.setCountLimit((query.countLimit() == null) ? 0 : query.countLimit());
+        searchControls.setReturningAttributes(query.attributes());
+        searchControls.setReturningObjFlag(false);
+
+        return searchControls;
+    }
+
+    /**
+     * Perform search for the values of a single attribute.  Only the requested attribute
+     * is retrieved, and its values are collected straight from the search results,
+     * without creating an entity instance per entry.  The values of all matching entries
+     * are returned in a single list, in the order in which they are received.
+     * @param query The LDAP query
+     * @param attribute The LDAP attribute name
+     * @return The attribute values
+     * @throws RemotingException if unable to perform the search
+     */
+    public List<String> searchForValues(
+        final LdapQuery query,
+        final String attribute) throws RemotingException {
+        return searchForValues(query, attribute, String.class);
+    }
+
+    /**
+     * Perform search for the values of a single attribute, converted to the supplied
+     * type with the {@code AttributeConverter} that is registered for the type.
+     * @param <V> The type
+     * @param query The LDAP query
+     * @param attribute The LDAP attribute name
+     * @param valueType The value type
+     * @return The attribute values
+     * @throws RemotingException if unable to perform the search
+     */
+    public <V> List<V> searchForValues(
+        final LdapQuery query,
+        final String attribute,
+        final Class<V> valueType) throws RemotingException {
+
+        List<V> result;
+
+        result = new ArrayList<V>();
+
+        searchForValues(query, attribute, valueType, result::add);
+
+        return result;
+    }
+
+    /**
+     * Perform search for the values of a single attribute, handing each value to the
+     * supplied consumer as it is received, so that no list of values is accumulated.
+     * @param <V> The type
+     * @param query The LDAP query
+     * @param attribute The LDAP attribute name
+     * @param valueType The value type
+     * @param consumer The consumer of the attribute values
+     * @throws RemotingException if unable to perform the search
+     */
+    public <V> void searchForValues(
+        final LdapQuery query,
+        final String attribute,
+        final Class<V> valueType,
+        final Consumer<? super V> consumer) throws RemotingException {
+
+        String methodName = "searchForValues";
+        String operation = "search-values";
+        Timer timer;
+        AttributeConverter<V> converter;
+        SearchControls searchControls;
+        NameClassPairCallbackHandler handler;
+        int[] count;
+        String base;
+        long duration;
+
+        initialize();
+
+        logger.debug(methodName, "Perform search for values in LDAP repository.  base = ", query.base(), ", filter = ", query.filter(), ", attribute = ", attribute);
+
+        timer = Timer.ofNanos().start();
+
+        base = query.base().toString();
+
+        try {
+
+            converter = AttributeConverters.get(valueType);
+
+            searchControls = getSearchControls(query);
+            searchControls.setReturningAttributes(new String[] {attribute});
+
+            count = new int[1];
+
+            handler = nameClassPair -> {
+
+                Attribute values = ((SearchResult) nameClassPair).getAttributes().get(attribute);
+
+                if (values != null) {
+
+                    for (int i = 0; i < values.size(); i++) {
+
+                        consumer.accept(converter.decode(values.get(i)));
+                    }
+
+                    count[0] += values.size();
+                }
+
+            };
+
+            ldapTemplate.search(query.base(), query.filter().encode(), searchControls, handler);
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(operation, base, duration, null);
+            metrics.recordResultSize(operation, base, count[0]);
+
+            logger.debug(methodName, "Search for values completed successfully.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+        }
+        catch (RuntimeException exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(operation, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Search for values failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+        }
+        catch (Exception exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(operation, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Search for values failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Failed to perform search for values: " + exception.getMessage(), exception);
         }
 
     }
 
+    /**
+     * Open change feed with the supplied protocol, starting afresh.
+     * @param <T> The type
+     * @param query The LDAP query, which selects the entries whose changes are streamed
+     * @param entityType The entity type to map the changed entries to
+     * @param mode The protocol with which to receive the changes
+     * @param listener The listener to deliver the changes to
+     * @return The change feed, which must be closed when the changes are no longer required
+     * @throws RemotingException if unable to open the change feed
+     */
+    public <T> ChangeFeed<T> openChangeFeed(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final ChangeFeedMode mode,
+        final ChangeListener<T> listener) throws RemotingException {
+        return openChangeFeed(query, entityType, mode, null, listener);
+    }
+
+    /**
+     * Open change feed with the supplied protocol, resuming from the supplied cookie.
+     * The change feed holds a dedicated connection to the LDAP server, outside the
+     * connection pools of the client, and delivers the changes to the listener on its
+     * own thread until it is closed.
+     * @param <T> The type
+     * @param query The LDAP query, which selects the entries whose changes are streamed
+     * @param entityType The entity type to map the changed entries to
+     * @param mode The protocol with which to receive the changes
+     * @param cookie The cookie of the last change that was processed, or null to start afresh
+     * @param listener The listener to deliver the changes to
+     * @return The change feed, which must be closed when the changes are no longer required
+     * @throws RemotingException if unable to open the change feed
+     */
+    public <T> ChangeFeed<T> openChangeFeed(
+        final LdapQuery query,
+        final Class<T> entityType,
+        final ChangeFeedMode mode,
+        final byte[] cookie,
+        final ChangeListener<T> listener) throws RemotingException {
+
+        String methodName = "openChangeFeed";
+        SearchControls searchControls;
+        ChangeFeed<T> changeFeed;
+
+        initialize();
+
+        logger.debug(methodName, "Open change feed on LDAP repository.  mode = ", mode, ", base = ", query.base(), ", filter = ", query.filter());
+
+        searchControls = getSearchControls(query);
+        searchControls.setTimeLimit(0);
+        searchControls.setCountLimit(0);
+
+        changeFeed = new ChangeFeed<T>(new ConnectionFactory(ssl, startTls, sslContext, lenient, this), this, query.base(), query.filter().encode(),
+            searchControls, getMapper(entityType), mode, cookie, listener);
+        changeFeed.start((getName() == null) ? "ldap-change-feed" : "ldap-" + getName() + "-change-feed");
+
+        changeFeeds.removeIf(ChangeFeed::isClosed);
+        changeFeeds.add(changeFeed);
+
+        return changeFeed;
+    }
+
+    /**
+     * Check credentials of the entry with the supplied distinguished name, by binding
+     * as the entry.  The bind is performed on a connection from the bind pool, which is
+     * bound again for every check, and is never used for other requests.  An empty
+     * password is rejected without a request to the LDAP server, as the LDAP server
+     * would treat it as an unauthenticated bind that always succeeds.
+     * @param dn The distinguished name of the entry
+     * @param password The password
+     * @return true if the credentials are valid, false otherwise
+     * @throws RemotingException if unable to check the credentials
+     */
+    public boolean authenticate(
+        final Name dn,
+        final String password) throws RemotingException {
+
+        String methodName = "authenticate";
+        Timer timer;
+        DirContext context = null;
+        boolean authenticated;
+        long duration;
+
+        if ((dn == null) || (dn.isEmpty() == true) || (StringUtils.hasLength(password) == false)) {
+
+            logger.debug(methodName, "Authentication rejected.  Distinguished name and password must not be empty.");
+
+            return false;
+        }
+
+        initialize();
+
+        logger.debug(methodName, "Perform authentication in LDAP repository.  dn = ", dn);
+
+        timer = Timer.ofNanos().start();
+
+        try {
+
+            context = getBindManager().getContext(null, null);
+
+            try {
+
+                Connection.of(context).rebind(dn.toString(), password);
+
+                authenticated = true;
+            }
+            catch (javax.naming.AuthenticationException exception) {
+
+                authenticated = false;
+            }
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(methodName, "", duration, null);
+
+            logger.debug(methodName, "Authentication completed.  Authenticated = ", authenticated, ", duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+        }
+        catch (RuntimeException exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(methodName, "", duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Authentication failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+        }
+        catch (Exception exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(methodName, "", duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Authentication failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Failed to perform authentication: " + exception.getMessage(), exception);
+        }
+        finally {
+
+            if (context != null) {
+                ExceptionUtil.swallow(context::close);
+            }
+
+        }
+
+        return authenticated;
+    }
+
+    /**
+     * Check credentials of the single entry that matches the supplied query.  The entry
+     * is found with a search on the main pool, which returns no attributes and stops at
+     * the second entry, and the credentials are then checked on the bind pool.  The
+     * credentials are not valid if no entry, or more than one entry, matches the query.
+     * @param query The LDAP query
+     * @param password The password
+     * @return true if the credentials are valid, false otherwise
+     * @throws RemotingException if unable to check the credentials
+     */
+    public boolean authenticate(
+        final LdapQuery query,
+        final String password) throws RemotingException {
+
+        String methodName = "authenticate";
+        String operation = "authenticate-lookup";
+        Timer timer;
+        SearchControls searchControls;
+        List<Name> dns;
+        boolean ambiguous;
+        String base;
+        long duration;
+
+        if (StringUtils.hasLength(password) == false) {
+
+            logger.debug(methodName, "Authentication rejected.  Password must not be empty.");
+
+            return false;
+        }
+
+        initialize();
+
+        logger.debug(methodName, "Look up entry to authenticate in LDAP repository.  base = ", query.base(), ", filter = ", query.filter());
+
+        timer = Timer.ofNanos().start();
+
+        base = query.base().toString();
+
+        try {
+
+            searchControls = getSearchControls(query);
+            searchControls.setReturningAttributes(new String[] {"1.1"});
+            searchControls.setCountLimit(2);
+
+            try {
+
+                dns = ldapTemplate.search(query.base(), query.filter().encode(), searchControls,
+                    (ContextMapper<Name>) context -> ((DirContextOperations) context).getDn());
+
+                ambiguous = (dns.size() > 1);
+            }
+            catch (SizeLimitExceededException exception) {
+
+                // The count limit is only exceeded when more than one entry matches.
+                dns = Collections.emptyList();
+                ambiguous = true;
+            }
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(operation, base, duration, null);
+
+            logger.debug(methodName, "Lookup completed successfully.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+        }
+        catch (RuntimeException exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(operation, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Lookup failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+        }
+
+        if (ambiguous == true) {
+
+            logger.debug(methodName, "Authentication rejected.  More than one entry matches the query.");
+
+            return false;
+        }
+
+        if (dns.isEmpty() == true) {
+
+            logger.debug(methodName, "Authentication rejected.  No entry matches the query.");
+
+            return false;
+        }
+
+        return authenticate(dns.get(0), password);
+    }
+
+    /**
+     * Perform modify.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param instance The instance that provides the new attributes
+     * @throws RemotingException if unable to perform the modify
+     */
+    public <T> void modify(
+        final LdapQuery query,
+        final T instance) throws RemotingException {
+
+        String methodName = "modify";
+        Timer timer;
+        DirContextOperations context;
+        String base;
+        long mappingStart;
+        long duration;
+
+        initialize();
+
+        logger.debug(methodName, "Perform modify in LDAP repository.  base = ", query.base(), ", filter = ", query.filter());
+
+        timer = Timer.ofNanos().start();
+
+        base = query.base().toString();
+
+        try {
+
+            context = ldapTemplate.searchForContext(query);
+
+            mappingStart = System.nanoTime();
+
+            getMapper(instance.getClass()).mapFromInstance(context, instance);
+
+            metrics.recordMapping(methodName, instance.getClass(), System.nanoTime() - mappingStart);
+
+            ldapTemplate.modifyAttributes(context);
+
+            invalidateCache();
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(methodName, base, duration, null);
+
+            logger.debug(methodName, "Modify completed successfully.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+        }
+        catch (RuntimeException exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(methodName, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Modify failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+        }
+        catch (Exception exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(methodName, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Modify failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Failed to perform modify: " + exception.getMessage(), exception);
+        }
+
+    }
+
+    /**
+     * Perform modify of the entry with the supplied distinguished name.  The entry is
+     * modified in a single request, without first being retrieved.  Every attribute in
+     * the instance that has a value replaces the corresponding attribute of the entry.
+     * <p>
+     * If dirty tracking is enabled and the instance was loaded by this client, then only
+     * the attribute values that changed since the instance was loaded are sent, and
+     * attributes that were cleared in the instance are removed from the entry.
+     * @param <T> The type
+     * @param dn The distinguished name of the entry
+     * @param instance The instance that provides the new attributes
+     * @throws RemotingException if unable to perform the modify
+     */
+    public <T> void modify(
+        final Name dn,
+        final T instance) throws RemotingException {
+
+        String methodName = "modify";
+        Timer timer;
+        LdapObjectMapper<?> mapper;
+        ModificationItem[] modificationItems;
+        String base;
+        long duration;
+
+        initialize();
+
+        logger.debug(methodName, "Perform modify in LDAP repository.  dn = ", dn);
+
+        timer = Timer.ofNanos().start();
+
+        base = (dn.size() > 1) ? dn.getPrefix(dn.size() - 1).toString() : "";
+
+        try {
+
+            mapper = getMapper(instance.getClass());
+
+            modificationItems = mapper.mapToModificationItems(instance);
+
+            metrics.recordMapping(methodName, instance.getClass(), timer.elapsedTime(TimeUnit.NANOSECONDS));
+
+            if (modificationItems.length == 0) {
+
+                logger.debug(methodName, "Modify skipped.  No attribute values have changed.");
+
+                return;
+            }
+
+            ldapTemplate.modifyAttributes(dn, modificationItems);
+
+            invalidateCache();
+
+            mapper.updateSnapshot(instance);
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(methodName, base, duration, null);
+
+            logger.debug(methodName, "Modify completed successfully.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+        }
+        catch (RuntimeException exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(methodName, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Modify failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+        }
+        catch (Exception exception) {
+
+            duration = timer.elapsedTime(TimeUnit.NANOSECONDS);
+
+            metrics.recordRequest(methodName, base, duration, ExceptionType.REMOTING_COMMUNICATION);
+
+            logger.debug(methodName, "Modify failed.  Duration = ", TimeUnit.NANOSECONDS.toMillis(duration), " ms.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Failed to perform modify: " + exception.getMessage(), exception);
+        }
+
+    }
+
+    /**
+     * Perform modify of the entry with the distinguished name that is held by the
+     * instance, in the member that is marked with {@code @LdapProperty(dn = true)}.
+     * @param <T> The type
+     * @param instance The instance that provides the distinguished name and the new attributes
+     * @throws RemotingException if unable to perform the modify
+     */
+    public <T> void modify(
+        final T instance) throws RemotingException {
+        modify(getDn(instance), instance);
+    }
+
+    /**
+     * Perform modify that must complete before the supplied deadline.  If the modify is
+     * still outstanding on the connection when the deadline expires, then the connection
+     * is closed, which makes the LDAP server abandon the modify, and is replaced in the
+     * pool.  A modify that is abandoned may or may not have been applied.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param instance The instance that provides the new attributes
+     * @param deadline The deadline
+     * @throws RemotingException if unable to perform the modify before the deadline
+     */
+    public <T> void modify(
+        final LdapQuery query,
+        final T instance,
+        final Deadline deadline) throws RemotingException {
+
+        withDeadline(deadline, () -> {
+            modify(query, instance);
+            return null;
+        });
+    }
+
+    /**
+     * Perform modify of the entry with the supplied distinguished name, which must
+     * complete before the supplied deadline.
+     * @param <T> The type
+     * @param dn The distinguished name of the entry
+     * @param instance The instance that provides the new attributes
+     * @param deadline The deadline
+     * @throws RemotingException if unable to perform the modify before the deadline
+     */
+    public <T> void modify(
+        final Name dn,
+        final T instance,
+        final Deadline deadline) throws RemotingException {
+
+        withDeadline(deadline, () -> {
+            modify(dn, instance);
+            return null;
+        });
+    }
+
+    /**
+     * Perform modify of the entry with the distinguished name that is held by the
+     * instance, which must complete before the supplied deadline.
+     * @param <T> The type
+     * @param instance The instance that provides the distinguished name and the new attributes
+     * @param deadline The deadline
+     * @throws RemotingException if unable to perform the modify before the deadline
+     */
+    public <T> void modify(
+        final T instance,
+        final Deadline deadline) throws RemotingException {
+        modify(getDn(instance), instance, deadline);
+    }
+
+    /**
+     * Perform operation under the supplied deadline.  The operation is not attempted if
+     * the deadline has already expired, and a failure of the operation after the deadline
+     * has expired is reported as such.
+     * @param <R> The result type
+     * @param deadline The deadline
+     * @param operation The operation
+     * @return The result of the operation
+     * @throws RemotingException if unable to perform the operation before the deadline
+     */
+    private <R> R withDeadline(
+        final Deadline deadline,
+        final Callable<R> operation) throws RemotingException {
+
+        String methodName = "withDeadline";
+        Deadline previous;
+
+        if (deadline.isExpired() == true) {
+
+            logger.debug(methodName, "Request not sent.  Deadline has expired.");
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Deadline expired before the request was sent.");
+        }
+
+        previous = Deadline.enter(deadline);
+
+        try {
+
+            return operation.call();
+        }
+        catch (RemotingException exception) {
+
+            if (Deadline.current().isExpired() == true) {
+
+                logger.debug(methodName, "Request failed.  Deadline has expired.");
+
+                throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Deadline expired: " + exception.getMessage(), exception);
+            }
+
+            throw exception;
+        }
+        catch (Exception exception) {
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+        }
+        finally {
+
+            Deadline.exit(previous);
+        }
+
+    }
+
+    /**
+     * Get distinguished name from instance.
+     * @param <T> The type
+     * @param instance The instance that provides the distinguished name
+     * @return The distinguished name
+     * @throws RemotingException if the instance does not provide a distinguished name
+     */
+    private <T> Name getDn(
+        final T instance) throws RemotingException {
+
+        Name dn;
+
+        dn = LdapObjectMapper.of(instance.getClass()).getDn(instance);
+
+        if (dn == null) {
+            throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "Distinguished name must be provided by " + instance.getClass().getName() + ".");
+        }
+
+        return dn;
+    }
+
+    /**
+     * Perform modify of many entries.  Each entry is identified by the distinguished name
+     * that is held by its instance, and is modified as with {@code modify(instance)}.
+     * <p>
+     * The modifications are spread over as many pooled connections as the configured bulk
+     * parallelism allows, and each connection is borrowed once for all the modifications
+     * that it performs.  A failure of one modification does not affect the others.
+     * @param <T> The type
+     * @param instances The instances that provide the distinguished names and new attributes
+     * @return The outcome of the modifications
+     * @throws RemotingException if unable to initialize the client
+     */
+    public <T> BulkResult<T> modifyAll(
+        final List<T> instances) throws RemotingException {
+
+        return executeBulk("modifyAll", "modify", instances, (template, instance) -> {
+
+            LdapObjectMapper<?> mapper;
+            ModificationItem[] modificationItems;
+
+            mapper = getMapper(instance.getClass());
+
+            modificationItems = mapper.mapToModificationItems(instance);
+
+            if (modificationItems.length > 0) {
+
+                template.modifyAttributes(getDn(instance), modificationItems);
+
+                mapper.updateSnapshot(instance);
+            }
+
+        });
+    }
+
+    /**
+     * Perform create of many entries.  Each entry is created with the distinguished name
+     * that is held by its instance, and with every attribute in the instance that has a value.
+     * <p>
+     * The creates are spread over as many pooled connections as the configured bulk
+     * parallelism allows, and each connection is borrowed once for all the creates
+     * that it performs.  A failure of one create does not affect the others.
+     * @param <T> The type
+     * @param instances The instances that provide the distinguished names and attributes
+     * @return The outcome of the creates
+     * @throws RemotingException if unable to initialize the client
+     */
+    public <T> BulkResult<T> createAll(
+        final List<T> instances) throws RemotingException {
+
+        return executeBulk("createAll", "create", instances, (template, instance) -> {
+
+            LdapObjectMapper<?> mapper;
+
+            mapper = getMapper(instance.getClass());
+
+            template.bind(getDn(instance), null, mapper.mapToAttributes(instance));
+
+            mapper.updateSnapshot(instance);
+        });
+    }
+
+    /**
+     * Perform delete of many entries.
+     * <p>
+     * The deletes are spread over as many pooled connections as the configured bulk
+     * parallelism allows, and each connection is borrowed once for all the deletes
+     * that it performs.  A failure of one delete does not affect the others.
+     * @param dns The distinguished names of the entries
+     * @return The outcome of the deletes
+     * @throws RemotingException if unable to initialize the client
+     */
+    public BulkResult<Name> deleteAll(
+        final List<Name> dns) throws RemotingException {
+
+        return executeBulk("deleteAll", "delete", dns, (template, dn) -> {
+            template.unbind(dn);
+        });
+    }
+
+    /**
+     * Execute bulk operation.  The items are divided into as many slices as the configured
+     * bulk parallelism allows.  Each slice is processed on its own pooled connection, and
+     * the slices are processed concurrently.  The first slice is processed on the calling
+     * thread, and the others on the bulk executor, which processes nothing but slices, so
+     * that a bulk operation never waits for a thread that is itself waiting, even when it
+     * is called from the asynchronous executor of the client.
+     * @param <T> The type
+     * @param methodName The name of the calling method
+     * @param operationName The name of the operation, for logging
+     * @param items The items
+     * @param operation The operation to perform on each item
+     * @return The outcome of the bulk operation
+     * @throws RemotingException if unable to initialize the client
+     */
+    private <T> BulkResult<T> executeBulk(
+        final String methodName,
+        final String operationName,
+        final List<T> items,
+        final BulkOperation<T> operation) throws RemotingException {
+
+        Timer timer;
+        int slices;
+        List<BulkResult.Item<T>> results;
+        List<CompletableFuture<Void>> futures;
+        BulkResult<T> bulkResult;
+
+        initialize();
+
+        logger.debug(methodName, "Perform bulk ", operationName, " in LDAP repository.  items = ", items.size());
+
+        timer = Timer.ofNanos().start();
+
+        slices = Math.max(1, Math.min(getBulkParallelism(), items.size()));
+        results = new ArrayList<BulkResult.Item<T>>(items.size());
+        futures = new ArrayList<CompletableFuture<Void>>(slices);
+
+        for (int i = 0; i < items.size(); i++) {
+            results.add(null);
+        }
+
+        for (int slice = 1; slice < slices; slice++) {
+
+            int first = slice;
+
+            Runnable worker = () -> executeSlice(operationName, items, results, first, slices, operation);
+
+            try {
+
+                futures.add(CompletableFuture.runAsync(worker, getBulkExecutor()));
+            }
+            catch (RejectedExecutionException exception) {
+
+                worker.run();
+            }
+
+        }
+
+        executeSlice(operationName, items, results, 0, slices, operation);
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+
+        invalidateCache();
+
+        bulkResult = new BulkResult<T>(results, timer.elapsedTime(TimeUnit.MILLISECONDS));
+
+        metrics.recordRequest("bulk-" + operationName, "", timer.elapsedTime(TimeUnit.NANOSECONDS), null);
+        metrics.recordResultSize("bulk-" + operationName, "", items.size());
+
+        logger.debug(methodName, "Bulk ", operationName, " completed.  Succeeded = ", bulkResult.getSuccessCount(),
+            ", failed = ", bulkResult.getFailureCount(), ", duration = ", bulkResult.getDuration(), " ms.");
+
+        return bulkResult;
+    }
+
+    /**
+     * Get executor on which the slices of bulk operations are processed, which is created
+     * when it is first needed.
+     * @return The bulk executor
+     * @throws RemotingException if the client is closed
+     */
+    private synchronized ExecutorService getBulkExecutor() throws RemotingException {
+
+        if (closed == true) {
+            throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "Client is closed.");
+        }
+
+        if (bulkExecutor == null) {
+            bulkExecutor = ExecutorFactory.create((getName() == null) ? "ldap-bulk" : "ldap-" + getName() + "-bulk",
+                Math.max(1, getBulkParallelism() - 1), getAsyncQueueSize(), isVirtualThreads());
+        }
+
+        return bulkExecutor;
+    }
+
+    /**
+     * Execute one slice of a bulk operation on a single pooled connection.  The slice
+     * consists of every n-th item, starting from the first item of the slice.  The outcome
+     * of each item is recorded as a request of its own.
+     * @param <T> The type
+     * @param operationName The name of the operation, for logging
+     * @param items The items
+     * @param results The list in which to record the outcome of each item
+     * @param first The index of the first item of the slice
+     * @param step The distance between the items of the slice
+     * @param operation The operation to perform on each item
+     */
+    private <T> void executeSlice(
+        final String operationName,
+        final List<T> items,
+        final List<BulkResult.Item<T>> results,
+        final int first,
+        final int step,
+        final BulkOperation<T> operation) {
+
+        DirContext context;
+        SingleContextSource contextSource;
+        LdapTemplate template;
+        RemotingException remotingException;
+        long start;
+
+        start = System.nanoTime();
+
+        try {
+
+            context = connectionManager.getReadWriteContext();
+        }
+        catch (RuntimeException exception) {
+
+            remotingException = new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getMessage(), exception);
+
+            for (int i = first; i < items.size(); i += step) {
+                recordItem(operationName, results, i, items.get(i), remotingException, start);
+            }
+
+            return;
+        }
+
+        contextSource = new SingleContextSource(context);
+
+        try {
+
+            template = new LdapTemplate(contextSource);
+            template.setDefaultTimeLimit(getRequestTimeout());
+
+            for (int i = first; i < items.size(); i += step) {
+
+                start = System.nanoTime();
+
+                try {
+
+                    operation.apply(template, items.get(i));
+
+                    recordItem(operationName, results, i, items.get(i), null, start);
+                }
+                catch (RemotingException exception) {
+
+                    recordItem(operationName, results, i, items.get(i), exception, start);
+                }
+                catch (Exception exception) {
+
+                    recordItem(operationName, results, i, items.get(i), new RemotingException(ExceptionType.REMOTING_COMMUNICATION,
+                        "Failed to perform " + operationName + ": " + exception.getMessage(), exception), start);
+                }
+
+            }
+
+        }
+        finally {
+
+            contextSource.destroy();
+        }
+
+    }
+
+    /**
+     * Record the outcome of one item of a bulk operation, both in the result of the bulk
+     * operation and as a request of its own.
+     * @param <T> The type
+     * @param operationName The name of the operation
+     * @param results The list in which to record the outcome of each item
+     * @param index The index of the item
+     * @param item The item
+     * @param exception The exception if the item failed, or null if the item succeeded
+     * @param start The time at which the item was started, on the scale of {@code System.nanoTime()}
+     */
+    private <T> void recordItem(
+        final String operationName,
+        final List<BulkResult.Item<T>> results,
+        final int index,
+        final T item,
+        final RemotingException exception,
+        final long start) {
+
+        results.set(index, new BulkResult.Item<T>(item, exception));
+
+        metrics.recordRequest(operationName, "", System.nanoTime() - start, (exception == null) ? null : ExceptionType.REMOTING_COMMUNICATION);
+    }
+
+    /**
+     * Perform modify asynchronously.  The modify is dispatched on the bounded executor
+     * of the client, and is subject to the same timing and exception handling as a
+     * synchronous modify.
+     * @param <T> The type
+     * @param query The LDAP query
+     * @param instance The instance that provides the new attributes
+     * @return The future, which completes exceptionally with a {@code RemotingException}
+     * if unable to perform the modify
+     */
+    public <T> CompletableFuture<Void> modifyAsync(
+        final LdapQuery query,
+        final T instance) {
+
+        return dispatch(() -> {
+            modify(query, instance);
+            return null;
+        });
+    }
+
+    /**
+     * Perform modify of the entry with the supplied distinguished name asynchronously.
+     * @param <T> The type
+     * @param dn The distinguished name of the entry
+     * @param instance The instance that provides the new attributes
+     * @return The future, which completes exceptionally with a {@code RemotingException}
+     * if unable to perform the modify
+     */
+    public <T> CompletableFuture<Void> modifyAsync(
+        final Name dn,
+        final T instance) {
+
+        return dispatch(() -> {
+            modify(dn, instance);
+            return null;
+        });
+    }
+
+    /**
+     * Dispatch operation on the executor of the client.
+     * @param <R> The result type
+     * @param operation The operation
+     * @return The future result of the operation
+     */
+    private <R> CompletableFuture<R> dispatch(
+        final Callable<R> operation) {
+
+        String methodName = "dispatch";
+        CompletableFuture<R> future;
+
+        future = new CompletableFuture<R>();
+
+        try {
+
+            initialize();
+
+            executor.execute(() -> {
+
+                try {
+
+                    future.complete(operation.call());
+                }
+                catch (Exception exception) {
+                    future.completeExceptionally(exception);
+                }
+
+            });
+
+        }
+        catch (RemotingException exception) {
+            future.completeExceptionally(exception);
+        }
+        catch (RejectedExecutionException exception) {
+
+            logger.debug(methodName, "Asynchronous request rejected.  Queue is full.");
+
+            future.completeExceptionally(new RemotingException(ExceptionType.LOCAL_APPLICATION, "Asynchronous request queue is full.", exception));
+        }
+
+        return future;
+    }
+
+    /**
+     * Wraps an object mapper and accumulates the time that is spent mapping entries,
+     * so that the mapping time of a search can be reported apart from the network time.
+     * The wrapper is confined to the thread that performs the search.
+     * @param <T> The type
+     */
+    private static final class TimedMapper<T> implements AttributesMapper<T>, ContextMapper<T> {
+
+        private LdapObjectMapper<T> mapper;
+
+        private long mappingTime;
+
+        /**
+         * Constructor.
+         * @param mapper The object mapper
+         */
+        TimedMapper(
+            final LdapObjectMapper<T> mapper) {
+
+            super();
+
+            this.mapper = mapper;
+        }
+
+        /**
+         * Check whether the entity type receives the distinguished name of the entry.
+         * @return true if the entity type receives the distinguished name, false otherwise
+         */
+        boolean isDnMapped() {
+            return mapper.isDnMapped();
+        }
+
+        /**
+         * Get accumulated mapping time.
+         * @return The mapping time, in nanoseconds
+         */
+        long getMappingTime() {
+            return mappingTime;
+        }
+
+        /**
+         * Map attributes to instance.
+         * @param attributes The attributes
+         * @return The instance
+         * @throws NamingException if unable to create the instance
+         */
+        public T mapFromAttributes(
+            final Attributes attributes) throws NamingException {
+
+            long start;
+
+            start = System.nanoTime();
+
+            try {
+
+                return mapper.mapFromAttributes(attributes);
+            }
+            finally {
+
+                mappingTime += System.nanoTime() - start;
+            }
+
+        }
+
+        /**
+         * Map context to instance.
+         * @param context The context
+         * @return The instance
+         * @throws NamingException if unable to create the instance
+         */
+        public T mapFromContext(
+            final Object context) throws NamingException {
+
+            long start;
+
+            start = System.nanoTime();
+
+            try {
+
+                return mapper.mapFromContext(context);
+            }
+            finally {
+
+                mappingTime += System.nanoTime() - start;
+            }
+
+        }
+
+    }
+
+    /**
+     * Operation that is applied to each item of a bulk operation.
+     * @param <T> The type
+     */
+    @FunctionalInterface
+    private interface BulkOperation<T> {
+
+        /**
+         * Apply operation to item.
+         * @param template The LDAP template that is bound to the connection of the slice
+         * @param item The item
+         * @throws Exception if unable to apply the operation
+         */
+        void apply(
+            final LdapTemplate template,
+            final T item) throws Exception;
+
+    }
+
 }
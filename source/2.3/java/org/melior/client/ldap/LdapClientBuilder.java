@@ -11,16 +11,20 @@ import javax.net.ssl.SSLContext;
 
 /**
  * Convenience class for building an {@code LdapClient}.  Provides
- * a switch for secure connections.
+ * switches for secure connections, either with LDAPS or with StartTLS.
  * @author Melior
  * @since 2.3
  */
 public class LdapClientBuilder {
 
     private boolean ssl = false;
+
+    private boolean startTls = false;
 
     private SSLContext sslContext;
 
+    private LdapMetrics metrics = LdapMetrics.NONE;
+
     /**
      * Constructor.
      */
@@ -44,7 +48,7 @@ public class LdapClientBuilder {
      */
     public LdapClient build() {
 
-        return new LdapClient(ssl, sslContext);
+        return new LdapClient(ssl, startTls, sslContext, metrics);
     }
 
     /**
@@ -58,6 +62,18 @@ public class LdapClientBuilder {
         return this;
     }
 
+    /**
+     * Enable StartTLS.  Each connection is opened on the plain LDAP port and upgraded
+     * to TLS before it is bound, and remains upgraded for as long as it is pooled.
+     * @return The LDAP client builder
+     */
+    public LdapClientBuilder startTls() {
+
+        this.startTls = true;
+
+        return this;
+    }
+
     /**
      * Set SSL context.
      * @param sslContext The SSL context
@@ -71,4 +87,17 @@ public class LdapClientBuilder {
         return this;
     }
 
+    /**
+     * Set metrics.
+     * @param metrics The metrics to which the client must report its measurements
+     * @return The LDAP client builder
+     */
+    public LdapClientBuilder metrics(
+        final LdapMetrics metrics) {
+
+        this.metrics = metrics;
+
+        return this;
+    }
+
 }
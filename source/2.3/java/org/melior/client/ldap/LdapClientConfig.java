@@ -16,6 +16,56 @@ import org.melior.client.core.ClientConfig;
  */
 public class LdapClientConfig extends ClientConfig {
 
+    private int pageSize = 500;
+
+    private int asyncThreads = 50;
+
+    private int asyncQueueSize = 1000;
+
+    private boolean virtualThreads;
+
+    private boolean dirtyTracking;
+
+    private int bulkParallelism = 4;
+
+    private int cacheSize = 0;
+
+    private int cacheTimeToLive = 60000;
+
+    private int negativeCacheTimeToLive = 5000;
+
+    private boolean requestCoalescing;
+
+    private LoadBalancing loadBalancing = LoadBalancing.ROUND_ROBIN;
+
+    private LdapClientConfig read;
+
+    private boolean eagerInitialization;
+
+    private String sslProtocols;
+
+    private String sslCipherSuites;
+
+    private int sslSessionCacheSize;
+
+    private int sslSessionTimeout;
+
+    static final String DEFAULT_BINARY_ATTRIBUTES = "objectGUID objectSid";
+
+    private String binaryAttributes = DEFAULT_BINARY_ATTRIBUTES;
+
+    private LdapClientConfig bind;
+
+    private int changeFeedPollInterval = 30000;
+
+    private int multiplexedRequests = 1;
+
+    private boolean adaptiveConcurrency;
+
+    private int concurrencyWaitTimeout = 1000;
+
+    private int keepaliveInterval = 0;
+
     /**
      * Constructor.
      */
@@ -32,8 +82,453 @@ public class LdapClientConfig extends ClientConfig {
     public LdapClientConfig configure(
         final LdapClientConfig clientConfig) {
         super.configure(clientConfig);
+        this.pageSize = clientConfig.pageSize;
+        this.asyncThreads = clientConfig.asyncThreads;
+        this.asyncQueueSize = clientConfig.asyncQueueSize;
+        this.virtualThreads = clientConfig.virtualThreads;
+        this.dirtyTracking = clientConfig.dirtyTracking;
+        this.bulkParallelism = clientConfig.bulkParallelism;
+        this.cacheSize = clientConfig.cacheSize;
+        this.cacheTimeToLive = clientConfig.cacheTimeToLive;
+        this.negativeCacheTimeToLive = clientConfig.negativeCacheTimeToLive;
+        this.requestCoalescing = clientConfig.requestCoalescing;
+        this.loadBalancing = clientConfig.loadBalancing;
+        this.read = clientConfig.read;
+        this.eagerInitialization = clientConfig.eagerInitialization;
+        this.sslProtocols = clientConfig.sslProtocols;
+        this.sslCipherSuites = clientConfig.sslCipherSuites;
+        this.sslSessionCacheSize = clientConfig.sslSessionCacheSize;
+        this.sslSessionTimeout = clientConfig.sslSessionTimeout;
+        this.binaryAttributes = clientConfig.binaryAttributes;
+        this.bind = clientConfig.bind;
+        this.changeFeedPollInterval = clientConfig.changeFeedPollInterval;
+        this.multiplexedRequests = clientConfig.multiplexedRequests;
+        this.adaptiveConcurrency = clientConfig.adaptiveConcurrency;
+        this.concurrencyWaitTimeout = clientConfig.concurrencyWaitTimeout;
+        this.keepaliveInterval = clientConfig.keepaliveInterval;
 
         return this;
     }
 
+    /**
+     * Get page size.
+     * @return The page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Set page size.
+     * @param pageSize The number of entries to request per page in a paged search
+     */
+    public void setPageSize(
+        final int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Get asynchronous threads.
+     * @return The asynchronous threads
+     */
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    /**
+     * Set asynchronous threads.
+     * @param asyncThreads The maximum number of threads on which asynchronous requests are dispatched
+     */
+    public void setAsyncThreads(
+        final int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    /**
+     * Get asynchronous queue size.
+     * @return The asynchronous queue size
+     */
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    /**
+     * Set asynchronous queue size.
+     * @param asyncQueueSize The maximum number of asynchronous requests that may wait for a thread
+     */
+    public void setAsyncQueueSize(
+        final int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    /**
+     * Get virtual threads indicator.
+     * @return The virtual threads indicator
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Set virtual threads indicator.
+     * @param virtualThreads true if asynchronous requests must be dispatched on virtual threads where the runtime supports them, false otherwise
+     */
+    public void setVirtualThreads(
+        final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Get dirty tracking indicator.
+     * @return The dirty tracking indicator
+     */
+    public boolean isDirtyTracking() {
+        return dirtyTracking;
+    }
+
+    /**
+     * Set dirty tracking indicator.
+     * @param dirtyTracking true if the attribute values loaded into mapped instances must be tracked, so that a modify only sends the values that changed, false otherwise; cannot be combined with the search cache or request coalescing
+     */
+    public void setDirtyTracking(
+        final boolean dirtyTracking) {
+        this.dirtyTracking = dirtyTracking;
+    }
+
+    /**
+     * Get bulk parallelism.
+     * @return The bulk parallelism
+     */
+    public int getBulkParallelism() {
+        return bulkParallelism;
+    }
+
+    /**
+     * Set bulk parallelism.
+     * @param bulkParallelism The maximum number of pooled connections over which a bulk operation is spread
+     */
+    public void setBulkParallelism(
+        final int bulkParallelism) {
+        this.bulkParallelism = bulkParallelism;
+    }
+
+    /**
+     * Get cache size.
+     * @return The cache size
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Set cache size.
+     * @param cacheSize The maximum number of search results to cache, or zero to disable the cache
+     */
+    public void setCacheSize(
+        final int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Get cache time to live.
+     * @return The cache time to live
+     */
+    public int getCacheTimeToLive() {
+        return cacheTimeToLive;
+    }
+
+    /**
+     * Set cache time to live.
+     * @param cacheTimeToLive The amount of time in seconds for which a search result is cached
+     */
+    public void setCacheTimeToLive(
+        final int cacheTimeToLive) {
+        this.cacheTimeToLive = cacheTimeToLive * 1000;
+    }
+
+    /**
+     * Get negative cache time to live.
+     * @return The negative cache time to live
+     */
+    public int getNegativeCacheTimeToLive() {
+        return negativeCacheTimeToLive;
+    }
+
+    /**
+     * Set negative cache time to live.
+     * @param negativeCacheTimeToLive The amount of time in seconds for which an empty search result is cached
+     */
+    public void setNegativeCacheTimeToLive(
+        final int negativeCacheTimeToLive) {
+        this.negativeCacheTimeToLive = negativeCacheTimeToLive * 1000;
+    }
+
+    /**
+     * Get request coalescing indicator.
+     * @return The request coalescing indicator
+     */
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    /**
+     * Set request coalescing indicator.
+     * @param requestCoalescing true if concurrent identical searches must share a single request, false otherwise
+     */
+    public void setRequestCoalescing(
+        final boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+    }
+
+    /**
+     * Get load balancing strategy.
+     * @return The load balancing strategy
+     */
+    public LoadBalancing getLoadBalancing() {
+        return loadBalancing;
+    }
+
+    /**
+     * Set load balancing strategy.
+     * @param loadBalancing The strategy with which to spread connections over the LDAP servers
+     */
+    public void setLoadBalancing(
+        final LoadBalancing loadBalancing) {
+        this.loadBalancing = loadBalancing;
+    }
+
+    /**
+     * Get read pool configuration.  When a URL is configured for the read pool, then
+     * searches are sent to the read pool, while modifications are sent to the main pool.
+     * @return The read pool configuration
+     */
+    public LdapClientConfig getRead() {
+
+        if (read == null) {
+            read = new LdapClientConfig();
+        }
+
+        return read;
+    }
+
+    /**
+     * Set read pool configuration.
+     * @param read The configuration of the pool of connections to the read replicas
+     */
+    public void setRead(
+        final LdapClientConfig read) {
+        this.read = read;
+    }
+
+    /**
+     * Get eager initialization indicator.
+     * @return The eager initialization indicator
+     */
+    public boolean isEagerInitialization() {
+        return eagerInitialization;
+    }
+
+    /**
+     * Set eager initialization indicator.
+     * @param eagerInitialization true if the client must be initialized and the pool filled at startup, false otherwise
+     */
+    public void setEagerInitialization(
+        final boolean eagerInitialization) {
+        this.eagerInitialization = eagerInitialization;
+    }
+
+    /**
+     * Get SSL protocols.
+     * @return The SSL protocols
+     */
+    public String getSslProtocols() {
+        return sslProtocols;
+    }
+
+    /**
+     * Set SSL protocols.
+     * @param sslProtocols The comma separated list of TLS protocols to enable, or empty for the defaults of the SSL context
+     */
+    public void setSslProtocols(
+        final String sslProtocols) {
+        this.sslProtocols = sslProtocols;
+    }
+
+    /**
+     * Get SSL cipher suites.
+     * @return The SSL cipher suites
+     */
+    public String getSslCipherSuites() {
+        return sslCipherSuites;
+    }
+
+    /**
+     * Set SSL cipher suites.
+     * @param sslCipherSuites The comma separated list of TLS cipher suites to enable, or empty for the defaults of the SSL context
+     */
+    public void setSslCipherSuites(
+        final String sslCipherSuites) {
+        this.sslCipherSuites = sslCipherSuites;
+    }
+
+    /**
+     * Get SSL session cache size.
+     * @return The SSL session cache size
+     */
+    public int getSslSessionCacheSize() {
+        return sslSessionCacheSize;
+    }
+
+    /**
+     * Set SSL session cache size.
+     * @param sslSessionCacheSize The maximum number of TLS sessions that the lenient SSL context caches for resumption, or zero for its default
+     */
+    public void setSslSessionCacheSize(
+        final int sslSessionCacheSize) {
+        this.sslSessionCacheSize = sslSessionCacheSize;
+    }
+
+    /**
+     * Get SSL session timeout.
+     * @return The SSL session timeout
+     */
+    public int getSslSessionTimeout() {
+        return sslSessionTimeout;
+    }
+
+    /**
+     * Set SSL session timeout.
+     * @param sslSessionTimeout The amount of time for which the lenient SSL context may resume a cached TLS session, or zero for its default
+     */
+    public void setSslSessionTimeout(
+        final int sslSessionTimeout) {
+        this.sslSessionTimeout = sslSessionTimeout * 1000;
+    }
+
+    /**
+     * Get binary attributes.
+     * @return The binary attributes
+     */
+    public String getBinaryAttributes() {
+        return binaryAttributes;
+    }
+
+    /**
+     * Set binary attributes.
+     * @param binaryAttributes The space separated list of LDAP attributes that must be retrieved as binary values
+     */
+    public void setBinaryAttributes(
+        final String binaryAttributes) {
+        this.binaryAttributes = binaryAttributes;
+    }
+
+    /**
+     * Get bind pool configuration.  Credentials are checked on a separate pool of
+     * connections, which connects to the URL of the main pool unless a URL is configured
+     * for the bind pool.
+     * @return The bind pool configuration
+     */
+    public LdapClientConfig getBind() {
+
+        if (bind == null) {
+            bind = new LdapClientConfig();
+        }
+
+        return bind;
+    }
+
+    /**
+     * Set bind pool configuration.
+     * @param bind The configuration of the pool of connections on which credentials are checked
+     */
+    public void setBind(
+        final LdapClientConfig bind) {
+        this.bind = bind;
+    }
+
+    /**
+     * Get change feed poll interval.
+     * @return The change feed poll interval
+     */
+    public int getChangeFeedPollInterval() {
+        return changeFeedPollInterval;
+    }
+
+    /**
+     * Set change feed poll interval.
+     * @param changeFeedPollInterval The interval at which the LDAP server is polled for changes, when the protocol of the change feed does not push changes
+     */
+    public void setChangeFeedPollInterval(
+        final int changeFeedPollInterval) {
+        this.changeFeedPollInterval = changeFeedPollInterval * 1000;
+    }
+
+    /**
+     * Get multiplexed requests.
+     * @return The multiplexed requests
+     */
+    public int getMultiplexedRequests() {
+        return multiplexedRequests;
+    }
+
+    /**
+     * Set multiplexed requests.
+     * @param multiplexedRequests The maximum number of concurrent requests per connection, where a value above one multiplexes the requests over shared connections instead of pooling connections
+     */
+    public void setMultiplexedRequests(
+        final int multiplexedRequests) {
+        this.multiplexedRequests = multiplexedRequests;
+    }
+
+    /**
+     * Get adaptive concurrency indicator.
+     * @return The adaptive concurrency indicator
+     */
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    /**
+     * Set adaptive concurrency indicator.
+     * @param adaptiveConcurrency true if the number of requests in flight must be limited adaptively, false otherwise
+     */
+    public void setAdaptiveConcurrency(
+        final boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    /**
+     * Get concurrency wait timeout.
+     * @return The concurrency wait timeout
+     */
+    public int getConcurrencyWaitTimeout() {
+        return concurrencyWaitTimeout;
+    }
+
+    /**
+     * Set concurrency wait timeout.
+     * @param concurrencyWaitTimeout The amount of time that a request may wait when the concurrency limit has been reached, before it is shed
+     */
+    public void setConcurrencyWaitTimeout(
+        final int concurrencyWaitTimeout) {
+        this.concurrencyWaitTimeout = concurrencyWaitTimeout * 1000;
+    }
+
+    /**
+     * Get interval at which idle connections are validated.
+     * @return The interval at which idle connections are validated
+     */
+    public int getKeepaliveInterval() {
+        return keepaliveInterval;
+    }
+
+    /**
+     * Set interval at which idle connections are validated.
+     * @param keepaliveInterval The interval at which idle connections are validated, in seconds, or zero to disable background validation
+     */
+    public void setKeepaliveInterval(
+        final int keepaliveInterval) {
+        this.keepaliveInterval = keepaliveInterval * 1000;
+    }
+
 }
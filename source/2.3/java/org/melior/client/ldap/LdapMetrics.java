@@ -0,0 +1,92 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import org.melior.service.exception.ExceptionType;
+
+/**
+ * Receives the measurements that an {@code LdapClient} takes of its requests and of its
+ * connection pools.  Every method has an empty default implementation, so that an
+ * implementation only needs to override the measurements that it is interested in.
+ * <p>
+ * All durations are in nanoseconds.  The base that a request is tagged with is the
+ * base of the query for searches, and the parent of the entry for modifications.
+ * @author Melior
+ * @since 2.3
+ * @see MicrometerLdapMetrics
+ */
+public interface LdapMetrics {
+
+    /**
+     * Instance that discards all measurements.
+     */
+    LdapMetrics NONE = new LdapMetrics() {};
+
+    /**
+     * Record completed request.
+     * @param operation The operation
+     * @param base The base of the request
+     * @param duration The total duration of the request, including mapping
+     * @param exceptionType The type of the exception if the request failed, or null if the request succeeded
+     */
+    default void recordRequest(
+        final String operation,
+        final String base,
+        final long duration,
+        final ExceptionType exceptionType) {
+    }
+
+    /**
+     * Record number of entries that a request returned or processed.
+     * @param operation The operation
+     * @param base The base of the request
+     * @param size The number of entries
+     */
+    default void recordResultSize(
+        final String operation,
+        final String base,
+        final int size) {
+    }
+
+    /**
+     * Record time spent mapping entries to or from instances of an entity type during
+     * a request.  The network time of the request is the request duration less the
+     * mapping time.
+     * @param operation The operation
+     * @param entityType The entity type
+     * @param duration The time spent mapping
+     */
+    default void recordMapping(
+        final String operation,
+        final Class<?> entityType,
+        final long duration) {
+    }
+
+    /**
+     * Record time that a caller waited to borrow a connection from a connection pool.
+     * @param pool The name of the connection pool
+     * @param duration The time waited
+     */
+    default void recordBorrow(
+        final String pool,
+        final long duration) {
+    }
+
+    /**
+     * Register connection pool, so that its statistics may be sampled.
+     * @param pool The name of the connection pool
+     * @param statistics The statistics of the connection pool
+     * @throws IllegalArgumentException if the pool cannot be registered, such as when a
+     * pool with the same name is already registered
+     */
+    default void registerPool(
+        final String pool,
+        final PoolStatistics statistics) {
+    }
+
+}
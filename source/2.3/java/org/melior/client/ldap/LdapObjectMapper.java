@@ -7,16 +7,26 @@
         Service Harness
 */
 package org.melior.client.ldap;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import javax.naming.Name;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
-import org.melior.util.exception.ExceptionUtil;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
 import org.springframework.ldap.UncategorizedLdapException;
 import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.core.DirContextAdapter;
 import org.springframework.ldap.core.DirContextOperations;
 
 /**
@@ -24,27 +34,80 @@ import org.springframework.ldap.core.DirContextOperations;
  * maps the attributes to the members of a new instance of the specified type.
  * <p>
  * For the LDAP modify use case, takes the members of an instance of the specified type and
- * maps the members to the attributes of a supplied LDAP context.
+ * maps the members to the attributes of a supplied LDAP context, or to the modification
+ * items of a modify request.
  * <p>
  * The target members of the instance are identified with the {@code LdapProperty} annotation.
+ * The annotated members of each type are resolved once, on first use, into a mapping plan
+ * that is reused for every subsequent mapping, so the per-entry cost is free of reflection.
+ * The values are converted between their LDAP form and the member types with the
+ * {@code AttributeConverter} that is registered for each member type, and a value that
+ * cannot be converted fails the mapping rather than being skipped.
+ * <p>
+ * A mapper that tracks snapshots remembers the attribute values that it loaded into each
+ * instance, so that the modification items for the instance only cover the values that
+ * have since changed.
+ * <p>
+ * Values are written in the form in which their attributes are declared, so that a type
+ * with more than one LDAP form, such as {@code UUID}, is written in its binary form only
+ * to the attributes that are declared binary.
  * @author Melior
  * @since 2.3
  * @see LdapProperty
  */
 public class LdapObjectMapper<T> implements AttributesMapper<T> {
 
-    private Class<T> entityType;
+    private static final ClassValue<LdapObjectMapper<?>> mappers = new ClassValue<LdapObjectMapper<?>>() {
+
+        protected LdapObjectMapper<?> computeValue(
+            final Class<?> entityType) {
+            return new LdapObjectMapper<>(MappingPlan.of(entityType), null, LdapClientConfig.DEFAULT_BINARY_ATTRIBUTES);
+        }
+
+    };
+
+    private MappingPlan<T> mappingPlan;
+
+    private SnapshotRegistry snapshots;
+
+    private boolean[] binary;
 
     /**
      * Constructor.
-     * @param entityType The entity type
+     * @param mappingPlan The mapping plan of the entity type
+     * @param snapshots The registry in which to track snapshots, or null if snapshots must not be tracked
+     * @param binaryAttributes The space separated names of the attributes that are declared binary
      */
     private LdapObjectMapper(
-        final Class<T> entityType) {
-
+        final MappingPlan<T> mappingPlan,
+        final SnapshotRegistry snapshots,
+        final String binaryAttributes) {
+
         super();
+
+        MappingPlan.Property[] getters;
+        Set<String> names;
 
-        this.entityType = entityType;
+        this.mappingPlan = mappingPlan;
+
+        this.snapshots = snapshots;
+
+        getters = mappingPlan.getGetters();
+        names = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+        binary = new boolean[getters.length];
+
+        if (binaryAttributes != null) {
+
+            for (String name : binaryAttributes.trim().split("\\s+")) {
+                names.add(name);
+            }
+
+        }
+
+        for (int i = 0; i < getters.length; i++) {
+            binary[i] = (getters[i].getAttribute().toLowerCase().endsWith(";binary") == true) || (names.contains(getters[i].getAttribute()) == true);
+        }
+
     }
 
     /**
@@ -53,9 +116,25 @@ public class LdapObjectMapper<T> implements AttributesMapper<T> {
      * @param entityType The entity type
      * @return The LDAP object mapper
      */
+    @SuppressWarnings("unchecked")
     public static <T> LdapObjectMapper<T> of(
         final Class<T> entityType) {
-        return new LdapObjectMapper<T>(entityType);
+        return (LdapObjectMapper<T>) mappers.get(entityType);
+    }
+
+    /**
+     * Get new instance of LDAP object mapper for the attributes of a specific client.
+     * @param <T> The type
+     * @param entityType The entity type
+     * @param snapshots The registry in which to track snapshots, or null if snapshots must not be tracked
+     * @param binaryAttributes The space separated names of the attributes that are declared binary
+     * @return The LDAP object mapper
+     */
+    static <T> LdapObjectMapper<T> of(
+        final Class<T> entityType,
+        final SnapshotRegistry snapshots,
+        final String binaryAttributes) {
+        return new LdapObjectMapper<T>(MappingPlan.of(entityType), snapshots, binaryAttributes);
     }
 
     /**
@@ -69,55 +148,38 @@ public class LdapObjectMapper<T> implements AttributesMapper<T> {
         final Attributes attributes) throws NamingException {
 
         T instance = null;
-        LdapProperty ldapProperty;
         Attribute attribute;
 
         try {
 
-            instance = (T) entityType.getDeclaredConstructor().newInstance();
+            instance = mappingPlan.newInstance();
 
-            for (Field field : entityType.getDeclaredFields()) {
+            for (MappingPlan.Property property : mappingPlan.getSetters()) {
 
-                ldapProperty = field.getAnnotation(LdapProperty.class);
+                attribute = attributes.get(property.getAttribute());
 
-                if (ldapProperty != null) {
+                if (attribute != null) {
 
-                    attribute = attributes.get(ldapProperty.value());
+                    try {
 
-                    if (attribute != null) {
-
-                        T i = instance; Attribute a = attribute;
-                        ExceptionUtil.swallow(() -> {
-                            field.setAccessible(true);
-                            field.set(i, a.get());
-                        });
+                        property.setFromAttribute(instance, attribute);
+                    }
+                    catch (Throwable exception) {
+                        throw new UncategorizedLdapException("Failed to map attribute " + property.getAttribute() + ": " + exception.getMessage(), exception);
                     }
 
                 }
 
             }
-
-            for (Method method : entityType.getDeclaredMethods()) {
-
-                ldapProperty = method.getAnnotation(LdapProperty.class);
-
-                if (ldapProperty != null) {
-
-                    attribute = attributes.get(ldapProperty.value());
-
-                    if (attribute != null) {
-
-                        T i = instance; Attribute a = attribute;
-                        ExceptionUtil.swallow(() -> {
-                            method.invoke(i, a.get());
-                        });
-                    }
-
-                }
 
+            if (snapshots != null) {
+                snapshots.put(instance, takeSnapshot(instance));
             }
 
         }
+        catch (UncategorizedLdapException exception) {
+            throw exception;
+        }
         catch (Exception exception) {
             throw new UncategorizedLdapException(exception.getMessage());
         }
@@ -125,6 +187,44 @@ public class LdapObjectMapper<T> implements AttributesMapper<T> {
         return instance;
     }
 
+    /**
+     * Map LDAP context to an instance.  The supplied context is the context of a single
+     * LDAP {@code SearchResult}.  The distinguished name of the context is mapped along
+     * with the attributes.
+     * @param context The LDAP context
+     * @return The instance populated with the distinguished name and attributes
+     * @throws NamingException if unable to create the instance
+     */
+    public T mapFromContext(
+        final Object context) throws NamingException {
+
+        DirContextAdapter contextAdapter;
+        T instance;
+
+        contextAdapter = (DirContextAdapter) context;
+
+        instance = mapFromAttributes(contextAdapter.getAttributes());
+
+        try {
+
+            mappingPlan.setDn(instance, contextAdapter.getDn());
+        }
+        catch (Throwable exception) {
+            throw new UncategorizedLdapException(exception.getMessage());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Check whether the entity type has a member that receives the distinguished name,
+     * in which case the search results must be mapped with {@code mapFromContext}.
+     * @return true if the entity type receives the distinguished name, false otherwise
+     */
+    public boolean isDnMapped() {
+        return mappingPlan.hasDnSetter();
+    }
+
     /**
      * Extract LDAP attributes from LDAP annotations on fields and
      * setter methods of entity type.
@@ -134,35 +234,7 @@ public class LdapObjectMapper<T> implements AttributesMapper<T> {
      */
     public static <T> String[] getAttributes(
         final Class<T> entityType) {
-
-        Set<String> attributes;
-        LdapProperty ldapProperty;
-
-        attributes = new HashSet<String>();
-
-        for (Field field : entityType.getDeclaredFields()) {
-
-            ldapProperty = field.getAnnotation(LdapProperty.class);
-
-            if (ldapProperty != null) {
-
-                attributes.add(ldapProperty.value());
-            }
-
-        }
-
-        for (Method method : entityType.getDeclaredMethods()) {
-
-            ldapProperty = method.getAnnotation(LdapProperty.class);
-
-            if (ldapProperty != null) {
-
-                attributes.add(ldapProperty.value());
-            }
-
-        }
-
-        return attributes.toArray(new String[attributes.size()]);
+        return MappingPlan.of(entityType).getAttributes().clone();
     }
 
     /**
@@ -177,52 +249,373 @@ public class LdapObjectMapper<T> implements AttributesMapper<T> {
         final DirContextOperations context,
         final T instance) {
 
-        LdapProperty ldapProperty;
+        MappingPlan.Property[] getters;
+        MappingPlan.Property property;
         Object attribute;
 
         try {
 
-            for (Field field : entityType.getDeclaredFields()) {
-
-                ldapProperty = field.getAnnotation(LdapProperty.class);
-
-                if (ldapProperty != null) {
+            getters = mappingPlan.getGetters();
+
+            for (int i = 0; i < getters.length; i++) {
+
+                property = getters[i];
 
-                    attribute = ExceptionUtil.swallow(() -> {
-                        field.setAccessible(true);
-                        return field.get(instance);
-                    }, null);
+                try {
 
-                    if (attribute != null) {
+                    attribute = property.getAttributeValue(instance, binary[i]);
+                }
+                catch (Throwable exception) {
+                    throw new UncategorizedLdapException("Failed to map attribute " + property.getAttribute() + ": " + exception.getMessage(), exception);
+                }
+
+                if (attribute instanceof Collection) {
+
+                    context.setAttributeValues(property.getAttribute(), ((Collection<?>) attribute).toArray());
+                }
+                else if (attribute != null) {
 
-                        context.setAttributeValue(ldapProperty.value(), attribute);
-                    }
+                    context.setAttributeValue(property.getAttribute(), attribute);
+                }
+
+            }
+
+        }
+        catch (UncategorizedLdapException exception) {
+            throw exception;
+        }
+        catch (Exception exception) {
+            throw new UncategorizedLdapException(exception.getMessage());
+        }
+
+    }
+
+    /**
+     * Map LDAP modification items from the supplied instance.  If the mapper tracks
+     * snapshots and holds a snapshot of the instance, then modification items are only
+     * created for the attribute values that differ from the snapshot.  Otherwise, a
+     * modification item that replaces the attribute value is created for every attribute
+     * in the instance that has a value.
+     * @param <T> The type
+     * @param instance The instance that provides the attributes
+     * @return The LDAP modification items
+     */
+    @SuppressWarnings("hiding")
+    public <T> ModificationItem[] mapToModificationItems(
+        final T instance) {
+
+        List<ModificationItem> modificationItems;
+        Object[] snapshot;
+        Object[] values;
+        MappingPlan.Property[] getters;
+
+        modificationItems = new ArrayList<ModificationItem>();
+
+        snapshot = (snapshots == null) ? null : snapshots.get(instance);
+        values = takeSnapshot(instance);
+        getters = mappingPlan.getGetters();
+
+        for (int i = 0; i < getters.length; i++) {
 
+            if (snapshot == null) {
+
+                if (values[i] != null) {
+
+                    modificationItems.add(new ModificationItem(DirContext.REPLACE_ATTRIBUTE, toAttribute(getters[i].getAttribute(), values[i])));
                 }
 
             }
-
-            for (Method method : entityType.getDeclaredMethods()) {
-
-                ldapProperty = method.getAnnotation(LdapProperty.class);
-
-                if (ldapProperty != null) {
-
-                    attribute = ExceptionUtil.swallow(() -> {
-                        return method.invoke(instance, new Object[0]);
-                    }, null);
-
-                    if (attribute != null) {
-
-                        context.setAttributeValue(ldapProperty.value(), attribute);
-                    }
+            else {
+
+                addChanges(modificationItems, getters[i].getAttribute(), snapshot[i], values[i]);
+            }
+
+        }
+
+        return modificationItems.toArray(new ModificationItem[modificationItems.size()]);
+    }
 
+    /**
+     * Map LDAP attributes from the supplied instance.  The attributes are used to create
+     * a new LDAP entry.  Every attribute in the instance that has a value is included.
+     * @param <T> The type
+     * @param instance The instance that provides the attributes
+     * @return The LDAP attributes
+     */
+    @SuppressWarnings("hiding")
+    public <T> Attributes mapToAttributes(
+        final T instance) {
+
+        Attributes attributes;
+        Object[] values;
+        MappingPlan.Property[] getters;
+
+        attributes = new BasicAttributes(true);
+
+        values = takeSnapshot(instance);
+        getters = mappingPlan.getGetters();
+
+        for (int i = 0; i < getters.length; i++) {
+
+            if (values[i] != null) {
+                attributes.put(toAttribute(getters[i].getAttribute(), values[i]));
+            }
+
+        }
+
+        return attributes;
+    }
+
+    /**
+     * Record the current attribute values of the supplied instance as its snapshot, after
+     * the instance has been written to the LDAP server.  Has no effect if the mapper does
+     * not track snapshots.
+     * @param instance The instance
+     */
+    void updateSnapshot(
+        final Object instance) {
+
+        if (snapshots != null) {
+            snapshots.put(instance, takeSnapshot(instance));
+        }
+
+    }
+
+    /**
+     * Take snapshot of the attribute values of an instance.  The values are held in their
+     * LDAP form.  Collections and byte arrays are copied, so that later changes to the
+     * instance do not affect the snapshot.
+     * @param instance The instance
+     * @return The snapshot
+     */
+    private Object[] takeSnapshot(
+        final Object instance) {
+
+        MappingPlan.Property[] getters;
+        Object[] snapshot;
+        Object value;
+
+        getters = mappingPlan.getGetters();
+        snapshot = new Object[getters.length];
+
+        for (int i = 0; i < getters.length; i++) {
+
+            try {
+
+                value = getters[i].getAttributeValue(instance, binary[i]);
+            }
+            catch (Throwable exception) {
+                throw new UncategorizedLdapException("Failed to map attribute " + getters[i].getAttribute() + ": " + exception.getMessage(), exception);
+            }
+
+            snapshot[i] = copy(value);
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Copy LDAP value for a snapshot.  Collections and byte arrays are copied, including
+     * the byte arrays in a collection.
+     * @param value The LDAP value
+     * @return The copy
+     */
+    private static Object copy(
+        final Object value) {
+
+        List<Object> values;
+
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+
+        if ((value instanceof Collection) == false) {
+            return value;
+        }
+
+        values = new ArrayList<Object>(((Collection<?>) value).size());
+
+        for (Object element : (Collection<?>) value) {
+            values.add((element instanceof byte[]) ? ((byte[]) element).clone() : element);
+        }
+
+        return values;
+    }
+
+    /**
+     * Check whether LDAP values are equal.  Byte arrays are compared by content, also
+     * when they are the elements of a collection.
+     * @param value1 The first LDAP value
+     * @param value2 The second LDAP value
+     * @return true if the values are equal, false otherwise
+     */
+    private static boolean isEqual(
+        final Object value1,
+        final Object value2) {
+
+        Iterator<?> iterator1;
+        Iterator<?> iterator2;
+
+        if (((value1 instanceof Collection) == false) || ((value2 instanceof Collection) == false)) {
+            return Objects.deepEquals(value1, value2);
+        }
+
+        if (((Collection<?>) value1).size() != ((Collection<?>) value2).size()) {
+            return false;
+        }
+
+        iterator1 = ((Collection<?>) value1).iterator();
+        iterator2 = ((Collection<?>) value2).iterator();
+
+        while (iterator1.hasNext() == true) {
+
+            if (Objects.deepEquals(iterator1.next(), iterator2.next()) == false) {
+                return false;
+            }
+
+        }
+
+        return true;
+    }
+
+    /**
+     * Get LDAP value in a form that is compared by content.  A byte array is wrapped in
+     * a buffer, which compares its content.
+     * @param value The LDAP value
+     * @return The comparable value
+     */
+    private static Object toComparable(
+        final Object value) {
+        return (value instanceof byte[]) ? ByteBuffer.wrap((byte[]) value) : value;
+    }
+
+    /**
+     * Get the values of a multi-valued attribute in a form that is compared by content.
+     * @param values The values
+     * @return The set of values
+     */
+    private static Set<Object> toComparableSet(
+        final Collection<?> values) {
+
+        Set<Object> set;
+
+        set = new HashSet<Object>(Math.max(16, values.size() * 4 / 3 + 1));
+
+        for (Object element : values) {
+            set.add(toComparable(element));
+        }
+
+        return set;
+    }
+
+    /**
+     * Add the modification items that change an attribute from its snapshot value to its
+     * current value.  The values of a multi-valued attribute are added and removed
+     * individually, while the value of a single-valued attribute is replaced.
+     * @param modificationItems The list of modification items to add to
+     * @param name The LDAP attribute name
+     * @param snapshotValue The snapshot value
+     * @param value The current value
+     */
+    private void addChanges(
+        final List<ModificationItem> modificationItems,
+        final String name,
+        final Object snapshotValue,
+        final Object value) {
+
+        Attribute removedValues;
+        Attribute addedValues;
+        Set<Object> snapshotValues;
+        Set<Object> values;
+
+        if (isEqual(snapshotValue, value) == true) {
+            return;
+        }
+
+        if (value == null) {
+
+            modificationItems.add(new ModificationItem(DirContext.REMOVE_ATTRIBUTE, new BasicAttribute(name)));
+        }
+        else if ((snapshotValue instanceof Collection) && (value instanceof Collection)) {
+
+            removedValues = new BasicAttribute(name);
+            addedValues = new BasicAttribute(name);
+            snapshotValues = toComparableSet((Collection<?>) snapshotValue);
+            values = toComparableSet((Collection<?>) value);
+
+            for (Object element : (Collection<?>) snapshotValue) {
+
+                if (values.contains(toComparable(element)) == false) {
+                    removedValues.add(element);
+                }
+
+            }
+
+            for (Object element : (Collection<?>) value) {
+
+                if (snapshotValues.contains(toComparable(element)) == false) {
+                    addedValues.add(element);
                 }
 
             }
 
+            if (removedValues.size() > 0) {
+                modificationItems.add(new ModificationItem(DirContext.REMOVE_ATTRIBUTE, removedValues));
+            }
+
+            if (addedValues.size() > 0) {
+                modificationItems.add(new ModificationItem(DirContext.ADD_ATTRIBUTE, addedValues));
+            }
+
         }
-        catch (Exception exception) {
+        else {
+
+            modificationItems.add(new ModificationItem(DirContext.REPLACE_ATTRIBUTE, toAttribute(name, value)));
+        }
+
+    }
+
+    /**
+     * Convert value to LDAP attribute.  The elements of a collection become
+     * the values of a multi-valued attribute.
+     * @param name The LDAP attribute name
+     * @param value The value
+     * @return The LDAP attribute
+     */
+    private Attribute toAttribute(
+        final String name,
+        final Object value) {
+
+        Attribute attribute;
+
+        if ((value instanceof Collection) == false) {
+            return new BasicAttribute(name, value);
+        }
+
+        attribute = new BasicAttribute(name);
+
+        for (Object element : (Collection<?>) value) {
+            attribute.add(element);
+        }
+
+        return attribute;
+    }
+
+    /**
+     * Get distinguished name from the supplied instance.
+     * @param <T> The type
+     * @param instance The instance that provides the distinguished name
+     * @return The distinguished name, or null if the instance does not provide one
+     */
+    @SuppressWarnings("hiding")
+    public <T> Name getDn(
+        final T instance) {
+
+        try {
+
+            return mappingPlan.getDn(instance);
+        }
+        catch (Throwable exception) {
             throw new UncategorizedLdapException(exception.getMessage());
         }
 
@@ -15,6 +15,10 @@ import java.lang.annotation.Target;
 
 /**
  * Indicates that the target represents an LDAP attribute within LDAP search results.
+ * <p>
+ * A single target may instead be marked as the distinguished name of the entry, in which
+ * case the attribute name is ignored.  The distinguished name target may be of type
+ * {@code String} or {@code Name}.
  * @author Melior
  * @since 2.3
  */
@@ -29,4 +33,10 @@ public @interface LdapProperty {
      */
     String value() default "";
 
+    /**
+     * Returns whether the target holds the distinguished name of the LDAP entry.
+     * @return true if the target holds the distinguished name, false otherwise
+     */
+    boolean dn() default false;
+
 }
@@ -0,0 +1,207 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.naming.CommunicationException;
+import javax.naming.ServiceUnavailableException;
+import org.springframework.ldap.core.support.LdapContextSource;
+
+/**
+ * Holds the health state of a single LDAP server of an {@code LdapClient}.  The state
+ * consists of the number of requests in flight, a moving average of the request latency,
+ * and the backoff that applies after consecutive failures to reach the server.  A server
+ * that is in backoff is drained, in that new connections are only opened to it once
+ * all the healthy servers have been tried.
+ * @author Melior
+ * @since 2.3
+ */
+public class LdapServer {
+
+    private static final double latencyWeight = 0.2;
+
+    private String url;
+
+    private LdapContextSource contextSource;
+
+    private LdapClientConfig configuration;
+
+    private AtomicInteger outstandingRequests;
+
+    private volatile double latency;
+
+    private int failures;
+
+    private volatile long backoffExpiry;
+
+    /**
+     * Constructor.
+     * @param url The URL of the server
+     * @param contextSource The context source for connections to the server
+     * @param configuration The client configuration
+     */
+    LdapServer(
+        final String url,
+        final LdapContextSource contextSource,
+        final LdapClientConfig configuration) {
+
+        super();
+
+        this.url = url;
+
+        this.contextSource = contextSource;
+
+        this.configuration = configuration;
+
+        this.outstandingRequests = new AtomicInteger();
+    }
+
+    /**
+     * Get URL of the server.
+     * @return The URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Get context source for connections to the server.
+     * @return The context source
+     */
+    LdapContextSource getContextSource() {
+        return contextSource;
+    }
+
+    /**
+     * Get number of requests in flight on the server.
+     * @return The number of requests in flight
+     */
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    /**
+     * Get moving average of the request latency of the server.
+     * @return The latency in milliseconds, or zero if no request has completed yet
+     */
+    public double getLatency() {
+        return latency / 1000000;
+    }
+
+    /**
+     * Check whether the server is available, which is when it is not in backoff.
+     * @return true if the server is available, false otherwise
+     */
+    public boolean isAvailable() {
+        return System.currentTimeMillis() >= backoffExpiry;
+    }
+
+    /**
+     * Record start of request.
+     */
+    void requestStarted() {
+        outstandingRequests.incrementAndGet();
+    }
+
+    /**
+     * Record successful completion of request.
+     * @param duration The duration of the request in nanoseconds
+     */
+    void requestSucceeded(
+        final long duration) {
+
+        outstandingRequests.decrementAndGet();
+
+        latency = (latency == 0) ? duration : (latency * (1 - latencyWeight)) + (duration * latencyWeight);
+
+        resetBackoff();
+    }
+
+    /**
+     * Record failed completion of request.  The server is put in backoff if the
+     * failure indicates that the server could not be reached.
+     * @param exception The exception that caused the request to fail
+     */
+    void requestFailed(
+        final Throwable exception) {
+
+        outstandingRequests.decrementAndGet();
+
+        if (isCommunicationFailure(exception) == true) {
+            backoff();
+        }
+
+    }
+
+    /**
+     * Record failure to open a connection to the server.  The server is put in backoff if
+     * the failure indicates that the server could not be reached.
+     * @param exception The exception that caused the connection to fail
+     */
+    void connectFailed(
+        final Throwable exception) {
+
+        if (isCommunicationFailure(exception) == true) {
+            backoff();
+        }
+
+    }
+
+    /**
+     * Reset backoff of the server, after it was reached successfully.
+     */
+    synchronized void resetBackoff() {
+
+        failures = 0;
+
+        backoffExpiry = 0;
+    }
+
+    /**
+     * Put the server in backoff, after it could not be reached.  The backoff period
+     * increases with each consecutive failure, up to the configured backoff limit.
+     */
+    synchronized void backoff() {
+
+        double backoffPeriod;
+
+        failures++;
+
+        backoffPeriod = configuration.getBackoffPeriod() * Math.pow(configuration.getBackoffMultiplier(), failures - 1);
+
+        if (configuration.getBackoffLimit() > 0) {
+            backoffPeriod = Math.min(backoffPeriod, configuration.getBackoffLimit());
+        }
+
+        backoffExpiry = System.currentTimeMillis() + (long) backoffPeriod;
+    }
+
+    /**
+     * Check whether exception indicates that the server could not be reached.
+     * @param exception The exception
+     * @return true if the server could not be reached, false otherwise
+     */
+    private static boolean isCommunicationFailure(
+        final Throwable exception) {
+
+        Throwable cause;
+
+        for (cause = exception; cause != null; cause = cause.getCause()) {
+
+            if ((cause instanceof CommunicationException) || (cause instanceof ServiceUnavailableException)
+                || (cause instanceof org.springframework.ldap.CommunicationException)
+                || (cause instanceof org.springframework.ldap.ServiceUnavailableException)) {
+                return true;
+            }
+
+        }
+
+        return false;
+    }
+
+}
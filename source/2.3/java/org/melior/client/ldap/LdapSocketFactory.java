@@ -11,33 +11,172 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.concurrent.Callable;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import org.melior.client.ssl.ClientSSLContext;
+import org.springframework.util.StringUtils;
 
 /**
  * Implements a factory for secure LDAP sockets.
+ * <p>
+ * JNDI instantiates the socket factory by class name, so the factory of the client that
+ * is opening a connection is handed to JNDI through the opening thread.  Each client
+ * owns a single {@code SSLContext}, so that the TLS sessions that are negotiated by its
+ * connections are cached, and new connections to the same server resume a session with
+ * an abbreviated handshake instead of performing a full handshake.  The session cache
+ * is only configured on the lenient {@code SSLContext} that a client creates for itself,
+ * while an {@code SSLContext} that is supplied to a client is used as is.
  * @author Melior
  * @since 2.3
  */
 public class LdapSocketFactory extends SSLSocketFactory {
 
-    private static SSLSocketFactory delegate = ClientSSLContext.ofLenient("TLS").getSocketFactory();
+    private static final ThreadLocal<LdapSocketFactory> current = new ThreadLocal<LdapSocketFactory>();
+
+    private static LdapSocketFactory lenient;
+
+    private SSLSocketFactory delegate;
+
+    private String[] protocols;
+
+    private String[] cipherSuites;
 
     /**
      * Constructor.
-     * @throws RuntimeException if unable to initialize the socket factory
+     * @param sslContext The SSL context
+     * @param configuration The client configuration, or null to use the defaults of the SSL context
      */
-    private LdapSocketFactory() {
+    LdapSocketFactory(
+        final SSLContext sslContext,
+        final LdapClientConfig configuration) {
 
         super();
+
+        if (configuration != null) {
+
+            protocols = split(configuration.getSslProtocols());
+
+            cipherSuites = split(configuration.getSslCipherSuites());
+        }
+
+        delegate = sslContext.getSocketFactory();
+    }
+
+    /**
+     * Configure the session cache of an SSL context that is owned by the client.
+     * @param sslContext The SSL context
+     * @param configuration The client configuration
+     * @return The SSL context
+     */
+    static SSLContext configureSessions(
+        final SSLContext sslContext,
+        final LdapClientConfig configuration) {
+
+        SSLSessionContext sessionContext;
+
+        sessionContext = sslContext.getClientSessionContext();
+
+        if ((sessionContext != null) && (configuration.getSslSessionCacheSize() > 0)) {
+            sessionContext.setSessionCacheSize(configuration.getSslSessionCacheSize());
+        }
+
+        if ((sessionContext != null) && (configuration.getSslSessionTimeout() > 0)) {
+            sessionContext.setSessionTimeout(Math.max(1, configuration.getSslSessionTimeout() / 1000));
+        }
+
+        return sslContext;
     }
 
     /**
-     * Get default socket factory.
+     * Get default socket factory.  This is the factory of the client that is opening
+     * a connection on the current thread, or a lenient factory if there is none.
      * @return The socket factory
      */
     public static SSLSocketFactory getDefault() {
-        return new LdapSocketFactory();
+
+        LdapSocketFactory socketFactory;
+
+        socketFactory = current.get();
+
+        if (socketFactory != null) {
+            return socketFactory;
+        }
+
+        synchronized (LdapSocketFactory.class) {
+
+            if (lenient == null) {
+                lenient = new LdapSocketFactory(ClientSSLContext.ofLenient("TLS"), null);
+            }
+
+            return lenient;
+        }
+
+    }
+
+    /**
+     * Open connection with the supplied socket factory.  The socket factory is handed to
+     * JNDI for the duration of the call.
+     * @param <T> The type
+     * @param socketFactory The socket factory, or null if the connection is not secure
+     * @param callable The callable that opens the connection
+     * @return The connection
+     * @throws Exception if unable to open the connection
+     */
+    static <T> T open(
+        final LdapSocketFactory socketFactory,
+        final Callable<T> callable) throws Exception {
+
+        if (socketFactory == null) {
+            return callable.call();
+        }
+
+        current.set(socketFactory);
+
+        try {
+
+            return callable.call();
+        }
+        finally {
+
+            current.remove();
+        }
+
+    }
+
+    /**
+     * Split comma separated list.
+     * @param list The list
+     * @return The items of the list, or null if the list is empty
+     */
+    private static String[] split(
+        final String list) {
+        return (StringUtils.hasText(list) == false) ? null : list.trim().split("\\s*,\\s*");
+    }
+
+    /**
+     * Apply configured protocols and cipher suites to socket.
+     * @param socket The socket
+     * @return The socket
+     */
+    private Socket configure(
+        final Socket socket) {
+
+        if (socket instanceof SSLSocket) {
+
+            if (protocols != null) {
+                ((SSLSocket) socket).setEnabledProtocols(protocols);
+            }
+
+            if (cipherSuites != null) {
+                ((SSLSocket) socket).setEnabledCipherSuites(cipherSuites);
+            }
+
+        }
+
+        return socket;
     }
 
     /**
@@ -45,7 +184,7 @@ public class LdapSocketFactory extends SSLSocketFactory {
      * @return The default cipher suites
      */
     public String[] getDefaultCipherSuites() {
-        return delegate.getDefaultCipherSuites();
+        return (cipherSuites != null) ? cipherSuites.clone() : delegate.getDefaultCipherSuites();
     }
 
     /**
@@ -61,7 +200,7 @@ public class LdapSocketFactory extends SSLSocketFactory {
      * @return The socket
      */
     public Socket createSocket() throws IOException {
-        return delegate.createSocket();
+        return configure(delegate.createSocket());
     }
 
     /**
@@ -69,7 +208,7 @@ public class LdapSocketFactory extends SSLSocketFactory {
      * @return The socket
      */
     public Socket createSocket(Socket arg0, String arg1, int arg2, boolean arg3) throws IOException {
-        return delegate.createSocket(arg0, arg1, arg2, arg3);
+        return configure(delegate.createSocket(arg0, arg1, arg2, arg3));
     }
 
     /**
@@ -77,7 +216,7 @@ public class LdapSocketFactory extends SSLSocketFactory {
      * @return The socket
      */
     public Socket createSocket(String arg0, int arg1) throws IOException, UnknownHostException {
-        return delegate.createSocket(arg0, arg1);
+        return configure(delegate.createSocket(arg0, arg1));
     }
 
     /**
@@ -85,7 +224,7 @@ public class LdapSocketFactory extends SSLSocketFactory {
      * @return The socket
      */
     public Socket createSocket(InetAddress arg0, int arg1) throws IOException {
-        return delegate.createSocket(arg0, arg1);
+        return configure(delegate.createSocket(arg0, arg1));
     }
 
     /**
@@ -93,7 +232,7 @@ public class LdapSocketFactory extends SSLSocketFactory {
      * @return The socket
      */
     public Socket createSocket(String arg0, int arg1, InetAddress arg2, int arg3) throws IOException, UnknownHostException {
-        return delegate.createSocket(arg0, arg1, arg2, arg3);
+        return configure(delegate.createSocket(arg0, arg1, arg2, arg3));
     }
 
     /**
@@ -101,7 +240,7 @@ public class LdapSocketFactory extends SSLSocketFactory {
      * @return The socket
      */
     public Socket createSocket(InetAddress arg0, int arg1, InetAddress arg2, int arg3) throws IOException {
-        return delegate.createSocket(arg0, arg1, arg2, arg3);
+        return configure(delegate.createSocket(arg0, arg1, arg2, arg3));
     }
 
 }
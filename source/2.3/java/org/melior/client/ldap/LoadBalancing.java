@@ -0,0 +1,41 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+
+/**
+ * Strategies for spreading the connections of an {@code LdapClient} over the
+ * LDAP servers that are configured for the client.
+ * @author Melior
+ * @since 2.3
+ */
+public enum LoadBalancing {
+
+    /**
+     * Open each new connection to the next server in turn.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Open each new connection to the server with the fewest requests in flight.
+     */
+    LEAST_OUTSTANDING,
+
+    /**
+     * Open each new connection to a server chosen at random, weighted towards
+     * the servers with the lowest observed latency.
+     */
+    LATENCY_WEIGHTED,
+
+    /**
+     * Open each new connection to the first server in the list that is healthy,
+     * falling back to the subsequent servers in order.
+     */
+    PRIMARY_WITH_FALLBACK
+
+}
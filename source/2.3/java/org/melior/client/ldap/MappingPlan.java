@@ -0,0 +1,743 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.naming.Name;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import org.springframework.ldap.UncategorizedLdapException;
+import org.springframework.ldap.support.LdapUtils;
+
+/**
+ * Holds the mapping plan of an entity type, which is the set of LDAP attributes that
+ * the entity type maps to, along with prebuilt method handles that read and write the
+ * members that carry the {@code LdapProperty} annotation, and to the member that holds
+ * the distinguished name of the entry, if there is one.  Each attribute member is bound
+ * to the {@code AttributeConverter} for its type, and members of type {@code List},
+ * {@code Set} or {@code Collection} receive every value of a multi-valued attribute.
+ * <p>
+ * The plan is built once per entity type, on first use, and is cached for the lifetime
+ * of the class, so that the reflection cost is not incurred for every mapped entry.  If a
+ * {@code GeneratedMapper} was generated for the entity type at compile time, then the
+ * members are read and written through it, without reflection or method handles.
+ * <p>
+ * An annotated member that cannot be read or written fails the plan, rather than being
+ * left out of the mapping.
+ * @author Melior
+ * @since 2.3
+ * @see LdapProperty
+ */
+class MappingPlan<T> {
+
+    private static final ClassValue<MappingPlan<?>> plans = new ClassValue<MappingPlan<?>>() {
+
+        protected MappingPlan<?> computeValue(
+            final Class<?> entityType) {
+            return new MappingPlan<>(entityType);
+        }
+
+    };
+
+    private static final MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType getterType = MethodType.methodType(Object.class, Object.class);
+
+    private Class<T> entityType;
+
+    private MethodHandle constructor;
+
+    private String[] attributes;
+
+    private Property[] setters;
+
+    private Property[] getters;
+
+    private Property dnSetter;
+
+    private Property dnGetter;
+
+    private boolean dnAsString;
+
+    private GeneratedMapper<Object> generated;
+
+    /**
+     * Constructor.
+     * @param entityType The entity type
+     */
+    private MappingPlan(
+        final Class<T> entityType) {
+
+        super();
+
+        MethodHandles.Lookup lookup;
+        Set<String> attributes;
+        List<Property> setters;
+        List<Property> getters;
+        LdapProperty ldapProperty;
+
+        this.entityType = entityType;
+
+        lookup = MethodHandles.lookup();
+        attributes = new LinkedHashSet<String>();
+        setters = new ArrayList<Property>();
+        getters = new ArrayList<Property>();
+
+        this.generated = findGeneratedMapper(entityType);
+
+        this.constructor = (generated == null) ? findConstructor(lookup, entityType) : null;
+
+        for (Field field : entityType.getDeclaredFields()) {
+
+            ldapProperty = field.getAnnotation(LdapProperty.class);
+
+            if ((ldapProperty == null) || (Modifier.isStatic(field.getModifiers()) == true)) {
+                continue;
+            }
+
+            try {
+
+                field.setAccessible(true);
+
+                if (ldapProperty.dn() == true) {
+
+                    dnGetter = createProperty(lookup, null, field, false);
+                    dnSetter = createProperty(lookup, null, field, true);
+                    dnAsString = (field.getType() == String.class);
+
+                    continue;
+                }
+
+                attributes.add(ldapProperty.value());
+
+                getters.add(createProperty(lookup, ldapProperty.value(), field, false));
+
+                if (Modifier.isFinal(field.getModifiers()) == false) {
+
+                    setters.add(createProperty(lookup, ldapProperty.value(), field, true));
+                }
+
+            }
+            catch (Exception exception) {
+                throw new UncategorizedLdapException("Failed to map field " + field.getName() + " of " + entityType.getName() + ": " + exception.getMessage(), exception);
+            }
+
+        }
+
+        for (Method method : entityType.getDeclaredMethods()) {
+
+            ldapProperty = method.getAnnotation(LdapProperty.class);
+
+            if ((ldapProperty == null) || (Modifier.isStatic(method.getModifiers()) == true)) {
+                continue;
+            }
+
+            try {
+
+                method.setAccessible(true);
+
+                if (ldapProperty.dn() == true) {
+
+                    if (method.getParameterCount() == 1) {
+
+                        dnSetter = createProperty(lookup, null, method);
+                        dnAsString = (method.getParameterTypes()[0] == String.class);
+                    }
+                    else if ((method.getParameterCount() == 0) && (method.getReturnType() != void.class)) {
+
+                        dnGetter = createProperty(lookup, null, method);
+                    }
+                    else {
+                        throw new IllegalArgumentException("Method is neither a setter nor a getter.");
+                    }
+
+                    continue;
+                }
+
+                attributes.add(ldapProperty.value());
+
+                if (method.getParameterCount() == 1) {
+
+                    setters.add(createProperty(lookup, ldapProperty.value(), method));
+                }
+                else if ((method.getParameterCount() == 0) && (method.getReturnType() != void.class)) {
+
+                    getters.add(createProperty(lookup, ldapProperty.value(), method));
+                }
+                else {
+                    throw new IllegalArgumentException("Method is neither a setter nor a getter.");
+                }
+
+            }
+            catch (Exception exception) {
+                throw new UncategorizedLdapException("Failed to map method " + method.getName() + " of " + entityType.getName() + ": " + exception.getMessage(), exception);
+            }
+
+        }
+
+        this.attributes = attributes.toArray(new String[attributes.size()]);
+        this.setters = setters.toArray(new Property[setters.size()]);
+        this.getters = getters.toArray(new Property[getters.size()]);
+    }
+
+    /**
+     * Get mapping plan of entity type.
+     * @param <T> The type
+     * @param entityType The entity type
+     * @return The mapping plan
+     */
+    @SuppressWarnings("unchecked")
+    static <T> MappingPlan<T> of(
+        final Class<T> entityType) {
+        return (MappingPlan<T>) plans.get(entityType);
+    }
+
+    /**
+     * Create property for field.  The field is accessed through the generated mapper if
+     * the generated mapper can reach it, and through a method handle otherwise.
+     * @param lookup The method handle lookup
+     * @param attribute The LDAP attribute name
+     * @param field The field
+     * @param setter true to create a property that writes the field, false to create one that reads it
+     * @return The property
+     * @throws IllegalAccessException if unable to access the field
+     */
+    private Property createProperty(
+        final MethodHandles.Lookup lookup,
+        final String attribute,
+        final Field field,
+        final boolean setter) throws IllegalAccessException {
+
+        int index;
+
+        index = (generated == null) ? -1 : generated.indexOf(field.getName());
+
+        if (index >= 0) {
+            return new Property(attribute, null, setter, generated, index, field.getGenericType());
+        }
+
+        return (setter == true)
+            ? new Property(attribute, lookup.unreflectSetter(field), true, null, -1, field.getGenericType())
+            : new Property(attribute, lookup.unreflectGetter(field), false, null, -1, field.getGenericType());
+    }
+
+    /**
+     * Create property for setter or getter method.  The method is called through the
+     * generated mapper if the generated mapper can reach it, and through a method handle
+     * otherwise.
+     * @param lookup The method handle lookup
+     * @param attribute The LDAP attribute name
+     * @param method The setter or getter method
+     * @return The property
+     * @throws IllegalAccessException if unable to access the method
+     */
+    private Property createProperty(
+        final MethodHandles.Lookup lookup,
+        final String attribute,
+        final Method method) throws IllegalAccessException {
+
+        int index;
+        Type memberType;
+
+        index = (generated == null) ? -1 : generated.indexOf(method.getName() + "()");
+        memberType = (method.getParameterCount() == 1) ? method.getGenericParameterTypes()[0] : method.getGenericReturnType();
+
+        if (index >= 0) {
+            return new Property(attribute, null, (method.getParameterCount() == 1), generated, index, memberType);
+        }
+
+        return new Property(attribute, lookup.unreflect(method), (method.getParameterCount() == 1), null, -1, memberType);
+    }
+
+    /**
+     * Find mapper that was generated for entity type at compile time.
+     * @param entityType The entity type
+     * @return The generated mapper, or null if no mapper was generated for the entity type
+     */
+    @SuppressWarnings("unchecked")
+    private static GeneratedMapper<Object> findGeneratedMapper(
+        final Class<?> entityType) {
+
+        String name;
+        int separator;
+        Class<?> mapperType;
+
+        name = entityType.getName();
+        separator = name.lastIndexOf('.') + 1;
+        name = name.substring(0, separator) + name.substring(separator).replace('$', '_') + "_LdapMapper";
+
+        try {
+
+            mapperType = Class.forName(name, true, entityType.getClassLoader());
+
+            if (GeneratedMapper.class.isAssignableFrom(mapperType) == false) {
+                return null;
+            }
+
+            return (GeneratedMapper<Object>) mapperType.getDeclaredConstructor().newInstance();
+        }
+        catch (Exception | LinkageError exception) {
+            return null;
+        }
+
+    }
+
+    /**
+     * Find no-argument constructor of entity type.
+     * @param lookup The method handle lookup
+     * @param entityType The entity type
+     * @return The constructor handle, or null if the entity type cannot be instantiated
+     */
+    private static MethodHandle findConstructor(
+        final MethodHandles.Lookup lookup,
+        final Class<?> entityType) {
+
+        Constructor<?> constructor;
+
+        try {
+
+            constructor = entityType.getDeclaredConstructor();
+            constructor.setAccessible(true);
+
+            return lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        }
+        catch (Exception exception) {
+            return null;
+        }
+
+    }
+
+    /**
+     * Get entity type.
+     * @return The entity type
+     */
+    Class<T> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Get names of LDAP attributes that the entity type maps to.
+     * @return The LDAP attribute names, which must not be modified
+     */
+    String[] getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Get properties that write to members of the entity type.
+     * @return The properties, which must not be modified
+     */
+    Property[] getSetters() {
+        return setters;
+    }
+
+    /**
+     * Get properties that read from members of the entity type.
+     * @return The properties, which must not be modified
+     */
+    Property[] getGetters() {
+        return getters;
+    }
+
+    /**
+     * Check whether entity type has a member that receives the distinguished name.
+     * @return true if the entity type receives the distinguished name, false otherwise
+     */
+    boolean hasDnSetter() {
+        return dnSetter != null;
+    }
+
+    /**
+     * Write distinguished name to instance.
+     * @param instance The instance
+     * @param dn The distinguished name
+     * @throws Throwable if unable to write the distinguished name
+     */
+    void setDn(
+        final Object instance,
+        final Name dn) throws Throwable {
+
+        if (dnSetter != null) {
+            dnSetter.set(instance, (dnAsString == true) ? dn.toString() : dn);
+        }
+
+    }
+
+    /**
+     * Read distinguished name from instance.
+     * @param instance The instance
+     * @return The distinguished name, or null if the entity type has no distinguished
+     * name member, or if the member is empty
+     * @throws Throwable if unable to read the distinguished name
+     */
+    Name getDn(
+        final Object instance) throws Throwable {
+
+        Object dn;
+
+        if (dnGetter == null) {
+            return null;
+        }
+
+        dn = dnGetter.get(instance);
+
+        if (dn instanceof Name) {
+            return (Name) dn;
+        }
+
+        return (dn == null) ? null : LdapUtils.newLdapName(dn.toString());
+    }
+
+    /**
+     * Create new instance of entity type.
+     * @return The new instance
+     * @throws Exception if unable to create the instance
+     */
+    @SuppressWarnings("unchecked")
+    T newInstance() throws Exception {
+
+        if (generated != null) {
+            return (T) generated.newInstance();
+        }
+
+        if (constructor == null) {
+            throw new InstantiationException("No default constructor in " + entityType.getName());
+        }
+
+        try {
+
+            return (T) constructor.invokeExact();
+        }
+        catch (Exception | Error exception) {
+            throw exception;
+        }
+        catch (Throwable exception) {
+            throw new Exception(exception.getMessage(), exception);
+        }
+
+    }
+
+    /**
+     * Binds an LDAP attribute name to a method handle that reads or writes
+     * the annotated member, and to the converter for the values of the member.
+     * A member of a primitive type is written through a primitive setter, so that
+     * its values are decoded and written without boxing.
+     */
+    static final class Property {
+
+        private String attribute;
+
+        private MethodHandle handle;
+
+        private GeneratedMapper<Object> generated;
+
+        private int index;
+
+        private AttributeConverter<Object> converter;
+
+        private Class<?> collectionType;
+
+        private Class<?> primitiveType;
+
+        private MethodHandle primitiveHandle;
+
+        private boolean primitiveMember;
+
+        /**
+         * Constructor.
+         * @param attribute The LDAP attribute name
+         * @param handle The method handle, or null if the member is accessed through the generated mapper
+         * @param setter true if the property writes the member, false if it reads the member
+         * @param generated The generated mapper, or null if the member is accessed through the method handle
+         * @param index The index of the member in the generated mapper
+         * @param memberType The generic type of the member
+         */
+        @SuppressWarnings("unchecked")
+        Property(
+            final String attribute,
+            final MethodHandle handle,
+            final boolean setter,
+            final GeneratedMapper<Object> generated,
+            final int index,
+            final Type memberType) {
+
+            super();
+
+            Class<?> rawType;
+            Type elementType;
+
+            this.attribute = attribute;
+
+            this.handle = (handle == null) ? null : handle.asType((setter == true) ? setterType : getterType);
+
+            this.generated = generated;
+
+            this.index = index;
+
+            rawType = rawTypeOf(memberType);
+            elementType = rawType;
+            primitiveMember = rawType.isPrimitive();
+
+            if ((rawType == List.class) || (rawType == Set.class) || (rawType == Collection.class)) {
+
+                collectionType = (rawType == Set.class) ? Set.class : List.class;
+
+                elementType = (memberType instanceof ParameterizedType)
+                    ? ((ParameterizedType) memberType).getActualTypeArguments()[0] : Object.class;
+            }
+
+            converter = (AttributeConverter<Object>) AttributeConverters.get(rawTypeOf(elementType));
+
+            if ((setter == true) && (collectionType == null) && (AttributeConverters.hasPrimitivePath(rawType) == true)) {
+
+                primitiveType = rawType;
+
+                primitiveHandle = (handle == null) ? null : MethodHandles.explicitCastArguments(handle,
+                    MethodType.methodType(void.class, Object.class, (rawType == boolean.class) ? boolean.class
+                        : ((rawType == double.class) || (rawType == float.class)) ? double.class : long.class));
+            }
+
+        }
+
+        /**
+         * Get raw class of type.
+         * @param type The type
+         * @return The raw class, or {@code Object} if the type has no single raw class
+         */
+        private static Class<?> rawTypeOf(
+            final Type type) {
+
+            if (type instanceof Class) {
+                return (Class<?>) type;
+            }
+
+            if (type instanceof ParameterizedType) {
+                return rawTypeOf(((ParameterizedType) type).getRawType());
+            }
+
+            return Object.class;
+        }
+
+        /**
+         * Get LDAP attribute name.
+         * @return The LDAP attribute name
+         */
+        String getAttribute() {
+            return attribute;
+        }
+
+        /**
+         * Write value to member of instance.
+         * @param instance The instance
+         * @param value The value
+         * @throws Throwable if unable to write the value
+         */
+        void set(
+            final Object instance,
+            final Object value) throws Throwable {
+
+            if (generated != null) {
+                generated.set(instance, index, value);
+            }
+            else {
+                handle.invokeExact(instance, value);
+            }
+
+        }
+
+        /**
+         * Read value from member of instance.
+         * @param instance The instance
+         * @return The value
+         * @throws Throwable if unable to read the value
+         */
+        Object get(
+            final Object instance) throws Throwable {
+            return (generated != null) ? generated.get(instance, index) : (Object) handle.invokeExact(instance);
+        }
+
+        /**
+         * Convert the values of an LDAP attribute and write them to member of instance.
+         * A primitive member keeps its value when the attribute has no values.
+         * @param instance The instance
+         * @param ldapAttribute The LDAP attribute
+         * @throws Throwable if unable to convert or write the values
+         */
+        void setFromAttribute(
+            final Object instance,
+            final Attribute ldapAttribute) throws Throwable {
+
+            if ((ldapAttribute.size() == 0) && (primitiveMember == true)) {
+                return;
+            }
+
+            if (primitiveType == null) {
+                set(instance, decode(ldapAttribute));
+            }
+            else if (primitiveType == boolean.class) {
+                setBoolean(instance, AttributeConverters.decodeBoolean(ldapAttribute.get()));
+            }
+            else if ((primitiveType == double.class) || (primitiveType == float.class)) {
+                setDouble(instance, AttributeConverters.decodeDouble(ldapAttribute.get(), primitiveType));
+            }
+            else {
+                setLong(instance, AttributeConverters.decodeLong(ldapAttribute.get(), primitiveType));
+            }
+
+        }
+
+        /**
+         * Write integer to primitive member of instance, without boxing.
+         * @param instance The instance
+         * @param value The value
+         * @throws Throwable if unable to write the value
+         */
+        private void setLong(
+            final Object instance,
+            final long value) throws Throwable {
+
+            if (generated != null) {
+                generated.setLong(instance, index, value);
+            }
+            else {
+                primitiveHandle.invokeExact(instance, value);
+            }
+
+        }
+
+        /**
+         * Write real number to primitive member of instance, without boxing.
+         * @param instance The instance
+         * @param value The value
+         * @throws Throwable if unable to write the value
+         */
+        private void setDouble(
+            final Object instance,
+            final double value) throws Throwable {
+
+            if (generated != null) {
+                generated.setDouble(instance, index, value);
+            }
+            else {
+                primitiveHandle.invokeExact(instance, value);
+            }
+
+        }
+
+        /**
+         * Write boolean to primitive member of instance, without boxing.
+         * @param instance The instance
+         * @param value The value
+         * @throws Throwable if unable to write the value
+         */
+        private void setBoolean(
+            final Object instance,
+            final boolean value) throws Throwable {
+
+            if (generated != null) {
+                generated.setBoolean(instance, index, value);
+            }
+            else {
+                primitiveHandle.invokeExact(instance, value);
+            }
+
+        }
+
+        /**
+         * Read value from member of instance and convert it to LDAP values.
+         * @param instance The instance
+         * @param binary true if the attribute is declared binary, false otherwise
+         * @return The LDAP value, or a list of LDAP values if the member is a collection,
+         * or null if the member is empty
+         * @throws Throwable if unable to read or convert the value
+         */
+        Object getAttributeValue(
+            final Object instance,
+            final boolean binary) throws Throwable {
+            return encode(get(instance), binary);
+        }
+
+        /**
+         * Convert the values of an LDAP attribute to a member value.
+         * @param ldapAttribute The LDAP attribute
+         * @return The member value
+         * @throws NamingException if unable to read the values of the attribute
+         */
+        private Object decode(
+            final Attribute ldapAttribute) throws NamingException {
+
+            Collection<Object> values;
+            int size;
+
+            if (collectionType == null) {
+                return (ldapAttribute.size() == 0) ? null : converter.decode(ldapAttribute.get());
+            }
+
+            size = ldapAttribute.size();
+
+            values = (collectionType == Set.class)
+                ? new LinkedHashSet<Object>(Math.max(16, size * 4 / 3 + 1))
+                : new ArrayList<Object>(size);
+
+            for (int i = 0; i < size; i++) {
+                values.add(converter.decode(ldapAttribute.get(i)));
+            }
+
+            return values;
+        }
+
+        /**
+         * Convert member value to LDAP values.
+         * @param value The member value
+         * @param binary true if the attribute is declared binary, false otherwise
+         * @return The LDAP value, or a list of LDAP values if the member is a collection,
+         * or null if the member value is null
+         */
+        private Object encode(
+            final Object value,
+            final boolean binary) {
+
+            List<Object> values;
+
+            if (value == null) {
+                return null;
+            }
+
+            if ((collectionType == null) || ((value instanceof Collection) == false)) {
+                return converter.encode(value, binary);
+            }
+
+            values = new ArrayList<Object>(((Collection<?>) value).size());
+
+            for (Object element : (Collection<?>) value) {
+
+                if (element != null) {
+                    values.add(converter.encode(element, binary));
+                }
+
+            }
+
+            return values;
+        }
+
+    }
+
+}
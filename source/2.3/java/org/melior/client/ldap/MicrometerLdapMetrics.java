@@ -0,0 +1,374 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.melior.service.exception.ExceptionType;
+
+/**
+ * Publishes the measurements of an {@code LdapClient} to a Micrometer {@code MeterRegistry}.
+ * The following meters are published:
+ * <ul>
+ * <li>{@code ldap.client.requests} timer, tagged with operation, base and outcome</li>
+ * <li>{@code ldap.client.outcomes} counter, tagged with operation and outcome, where the
+ * outcome is {@code SUCCESS} or the exception type of the failure</li>
+ * <li>{@code ldap.client.results} distribution summary, tagged with operation and base</li>
+ * <li>{@code ldap.client.mapping} timer, tagged with operation and entity type</li>
+ * <li>{@code ldap.client.pool.borrow} timer, and {@code ldap.client.pool.active},
+ * {@code idle}, {@code waiting}, {@code created} and {@code destroyed} meters, tagged with pool</li>
+ * <li>{@code ldap.client.pool.concurrency.limit} gauge and {@code ldap.client.pool.shed}
+ * counter, tagged with pool, when adaptive concurrency limiting is enabled</li>
+ * </ul>
+ * The base tag holds only the topmost RDNs of the base of the request, by default the
+ * three topmost RDNs, which separate the subtrees below a naming context such as
+ * {@code dc=example,dc=com}, so that the number of time series remains bounded however
+ * many distinct entries are requested.  When the naming context is supplied, it is
+ * removed from the base first, and the tag holds the topmost RDNs below it.  The meters
+ * are registered once per set of tags, and are reused for every subsequent measurement.
+ * <p>
+ * The pool meters are tagged with the name of the pool, which derives from the name of
+ * the client, so a pool that is already registered with the same tags is rejected.
+ * Clients that share a registry must therefore have distinct names, or distinct tags.
+ * <p>
+ * Micrometer is an optional dependency, which must be on the class path when this class is used.
+ * @author Melior
+ * @since 2.3
+ */
+public class MicrometerLdapMetrics implements LdapMetrics {
+
+    private static final String SUCCESS = "SUCCESS";
+
+    private static final int DEFAULT_BASE_DEPTH = 3;
+
+    private MeterRegistry registry;
+
+    private Tags tags;
+
+    private String namingContext;
+
+    private int baseDepth;
+
+    private Map<MeterKey, Timer> requestTimers = new ConcurrentHashMap<MeterKey, Timer>();
+
+    private Map<MeterKey, Counter> outcomeCounters = new ConcurrentHashMap<MeterKey, Counter>();
+
+    private Map<MeterKey, DistributionSummary> resultSummaries = new ConcurrentHashMap<MeterKey, DistributionSummary>();
+
+    private Map<MeterKey, Timer> mappingTimers = new ConcurrentHashMap<MeterKey, Timer>();
+
+    private Map<String, Timer> borrowTimers = new ConcurrentHashMap<String, Timer>();
+
+    /**
+     * Constructor.
+     * @param registry The meter registry
+     */
+    public MicrometerLdapMetrics(
+        final MeterRegistry registry) {
+
+        this(registry, Collections.<Tag>emptyList());
+    }
+
+    /**
+     * Constructor.
+     * @param registry The meter registry
+     * @param tags The tags to add to every meter, such as the name of the client
+     */
+    public MicrometerLdapMetrics(
+        final MeterRegistry registry,
+        final Iterable<Tag> tags) {
+
+        this(registry, tags, DEFAULT_BASE_DEPTH);
+    }
+
+    /**
+     * Constructor.
+     * @param registry The meter registry
+     * @param tags The tags to add to every meter, such as the name of the client
+     * @param baseDepth The number of topmost RDNs of the base to tag requests with
+     */
+    public MicrometerLdapMetrics(
+        final MeterRegistry registry,
+        final Iterable<Tag> tags,
+        final int baseDepth) {
+
+        this(registry, tags, null, baseDepth);
+    }
+
+    /**
+     * Constructor.
+     * @param registry The meter registry
+     * @param tags The tags to add to every meter, such as the name of the client
+     * @param namingContext The naming context to remove from the base of a request, such as
+     * {@code dc=example,dc=com}, or null if the base must be tagged as is
+     * @param baseDepth The number of topmost RDNs of the base, below the naming context, to
+     * tag requests with
+     */
+    public MicrometerLdapMetrics(
+        final MeterRegistry registry,
+        final Iterable<Tag> tags,
+        final String namingContext,
+        final int baseDepth) {
+
+        super();
+
+        this.registry = registry;
+
+        this.tags = Tags.of(tags);
+
+        this.namingContext = ((namingContext == null) || (namingContext.trim().isEmpty() == true)) ? null : namingContext.trim();
+
+        this.baseDepth = Math.max(1, baseDepth);
+    }
+
+    /**
+     * Record completed request.
+     * @param operation The operation
+     * @param base The base of the request
+     * @param duration The total duration of the request, including mapping
+     * @param exceptionType The type of the exception if the request failed, or null if the request succeeded
+     */
+    public void recordRequest(
+        final String operation,
+        final String base,
+        final long duration,
+        final ExceptionType exceptionType) {
+
+        String baseTag;
+        String outcome;
+
+        baseTag = getBaseTag(base);
+        outcome = (exceptionType == null) ? SUCCESS : exceptionType.name();
+
+        requestTimers.computeIfAbsent(new MeterKey(operation, baseTag, outcome), key -> Timer.builder("ldap.client.requests")
+            .tags(tags).tag("operation", operation).tag("base", baseTag).tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(registry))
+            .record(duration, TimeUnit.NANOSECONDS);
+
+        outcomeCounters.computeIfAbsent(new MeterKey(operation, outcome, null), key -> Counter.builder("ldap.client.outcomes")
+            .tags(tags).tag("operation", operation).tag("outcome", outcome)
+            .register(registry))
+            .increment();
+    }
+
+    /**
+     * Record number of entries that a request returned or processed.
+     * @param operation The operation
+     * @param base The base of the request
+     * @param size The number of entries
+     */
+    public void recordResultSize(
+        final String operation,
+        final String base,
+        final int size) {
+
+        String baseTag;
+
+        baseTag = getBaseTag(base);
+
+        resultSummaries.computeIfAbsent(new MeterKey(operation, baseTag, null), key -> DistributionSummary.builder("ldap.client.results")
+            .tags(tags).tag("operation", operation).tag("base", baseTag)
+            .publishPercentileHistogram()
+            .register(registry))
+            .record(size);
+    }
+
+    /**
+     * Record time spent mapping entries to or from instances of an entity type.
+     * @param operation The operation
+     * @param entityType The entity type
+     * @param duration The time spent mapping
+     */
+    public void recordMapping(
+        final String operation,
+        final Class<?> entityType,
+        final long duration) {
+
+        mappingTimers.computeIfAbsent(new MeterKey(operation, entityType.getName(), null), key -> Timer.builder("ldap.client.mapping")
+            .tags(tags).tag("operation", operation).tag("type", entityType.getSimpleName())
+            .register(registry))
+            .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record time that a caller waited to borrow a connection from a connection pool.
+     * @param pool The name of the connection pool
+     * @param duration The time waited
+     */
+    public void recordBorrow(
+        final String pool,
+        final long duration) {
+
+        borrowTimers.computeIfAbsent(pool, key -> Timer.builder("ldap.client.pool.borrow")
+            .tags(tags).tag("pool", pool)
+            .publishPercentileHistogram()
+            .register(registry))
+            .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Register connection pool, so that its statistics may be sampled.
+     * @param pool The name of the connection pool
+     * @param statistics The statistics of the connection pool
+     * @throws IllegalArgumentException if a pool is already registered with the same tags
+     */
+    public void registerPool(
+        final String pool,
+        final PoolStatistics statistics) {
+
+        Tags poolTags;
+
+        poolTags = tags.and("pool", pool);
+
+        if (registry.find("ldap.client.pool.active").tags(poolTags).gauge() != null) {
+            throw new IllegalArgumentException("Connection pool " + pool + " is already registered.  Give each client a distinct name or distinct tags.");
+        }
+
+        Gauge.builder("ldap.client.pool.active", statistics, PoolStatistics::getActive).tags(poolTags).register(registry);
+        Gauge.builder("ldap.client.pool.idle", statistics, PoolStatistics::getIdle).tags(poolTags).register(registry);
+        Gauge.builder("ldap.client.pool.waiting", statistics, PoolStatistics::getWaiting).tags(poolTags).register(registry);
+        FunctionCounter.builder("ldap.client.pool.created", statistics, PoolStatistics::getCreated).tags(poolTags).register(registry);
+        FunctionCounter.builder("ldap.client.pool.destroyed", statistics, PoolStatistics::getDestroyed).tags(poolTags).register(registry);
+
+        if (statistics.getConcurrencyLimit() > 0) {
+
+            Gauge.builder("ldap.client.pool.concurrency.limit", statistics, PoolStatistics::getConcurrencyLimit).tags(poolTags).register(registry);
+            FunctionCounter.builder("ldap.client.pool.shed", statistics, PoolStatistics::getShed).tags(poolTags).register(registry);
+        }
+
+    }
+
+    /**
+     * Get value with which to tag the base of a request, which is the topmost RDNs of
+     * the base below the naming context, up to the configured depth.
+     * @param base The base of the request
+     * @return The tag value
+     */
+    private String getBaseTag(
+        final String base) {
+
+        String scope;
+        int suffix;
+        int rdns = 0;
+        int escapes;
+
+        if (base == null) {
+            return "";
+        }
+
+        scope = base.trim();
+
+        if (namingContext != null) {
+
+            suffix = scope.length() - namingContext.length();
+
+            if ((suffix == 0) && (scope.equalsIgnoreCase(namingContext) == true)) {
+                return "";
+            }
+
+            if ((suffix > 0) && (scope.charAt(suffix - 1) == ',')
+                && (scope.regionMatches(true, suffix, namingContext, 0, namingContext.length()) == true)) {
+                scope = scope.substring(0, suffix - 1).trim();
+            }
+
+        }
+
+        for (int i = scope.length() - 1; i >= 0; i--) {
+
+            if (scope.charAt(i) == ',') {
+
+                escapes = 0;
+
+                while ((i - escapes > 0) && (scope.charAt(i - escapes - 1) == '\\')) {
+                    escapes++;
+                }
+
+                if ((escapes % 2 == 0) && (++rdns == baseDepth)) {
+                    return scope.substring(i + 1).trim();
+                }
+
+            }
+
+        }
+
+        return scope;
+    }
+
+    /**
+     * Identifies a meter by the values of its tags.
+     */
+    private static final class MeterKey {
+
+        private String first;
+
+        private String second;
+
+        private String third;
+
+        /**
+         * Constructor.
+         * @param first The first tag value
+         * @param second The second tag value
+         * @param third The third tag value, or null if there is none
+         */
+        MeterKey(
+            final String first,
+            final String second,
+            final String third) {
+
+            super();
+
+            this.first = first;
+
+            this.second = second;
+
+            this.third = third;
+        }
+
+        /**
+         * Get hash code of key.
+         * @return The hash code
+         */
+        public int hashCode() {
+            return (first.hashCode() * 31 + second.hashCode()) * 31 + ((third == null) ? 0 : third.hashCode());
+        }
+
+        /**
+         * Check whether key equals another object.
+         * @param object The other object
+         * @return true if the other object is a key with the same tag values, false otherwise
+         */
+        public boolean equals(
+            final Object object) {
+
+            MeterKey other;
+
+            if ((object instanceof MeterKey) == false) {
+                return false;
+            }
+
+            other = (MeterKey) object;
+
+            return (first.equals(other.first) == true) && (second.equals(other.second) == true)
+                && ((third == null) ? (other.third == null) : (third.equals(other.third) == true));
+        }
+
+    }
+
+}
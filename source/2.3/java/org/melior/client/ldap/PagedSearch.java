@@ -0,0 +1,175 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import javax.naming.Name;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+import org.melior.logging.core.Logger;
+import org.melior.logging.core.LoggerFactory;
+import org.melior.util.time.Timer;
+import org.springframework.ldap.control.PagedResultsDirContextProcessor;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.core.support.SingleContextSource;
+
+/**
+ * Iterates over the results of an LDAP search one page at a time, using the
+ * paged results control of RFC 2696.  Only the current page of results is held
+ * in memory.  The pooled {@code Connection} on which the search was started is
+ * held until the search is closed, as the server requires all the pages of a
+ * paged search to be requested on the same connection.
+ * @author Melior
+ * @since 2.3
+ */
+class PagedSearch<T> implements Iterator<T>, AutoCloseable {
+
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private SingleContextSource contextSource;
+
+    private LdapTemplate ldapTemplate;
+
+    private Name base;
+
+    private String filter;
+
+    private SearchControls searchControls;
+
+    private LdapObjectMapper<T> mapper;
+
+    private PagedResultsDirContextProcessor processor;
+
+    private Iterator<T> page;
+
+    private boolean morePages;
+
+    private long resultCount;
+
+    private Timer timer;
+
+    private boolean closed;
+
+    /**
+     * Constructor.
+     * @param context The context on which to perform the search
+     * @param base The search base
+     * @param filter The search filter
+     * @param searchControls The search controls
+     * @param mapper The mapper for the search results
+     * @param pageSize The page size
+     */
+    PagedSearch(
+        final DirContext context,
+        final Name base,
+        final String filter,
+        final SearchControls searchControls,
+        final LdapObjectMapper<T> mapper,
+        final int pageSize) {
+
+        super();
+
+        this.contextSource = new SingleContextSource(context);
+
+        this.ldapTemplate = new LdapTemplate(contextSource);
+
+        this.base = base;
+
+        this.filter = filter;
+
+        this.searchControls = searchControls;
+
+        this.mapper = mapper;
+
+        this.processor = new PagedResultsDirContextProcessor(pageSize);
+
+        this.page = Collections.emptyIterator();
+
+        this.morePages = true;
+
+        this.timer = Timer.ofNanos().start();
+    }
+
+    /**
+     * Check whether there are more results.  Fetches the next page from the
+     * LDAP server when the current page has been exhausted.
+     * @return true if there are more results, false otherwise
+     */
+    public boolean hasNext() {
+
+        String methodName = "hasNext";
+        List<T> results;
+
+        while ((page.hasNext() == false) && (morePages == true) && (closed == false)) {
+
+            try {
+
+                results = (mapper.isDnMapped() == true)
+                    ? ldapTemplate.search(base, filter, searchControls, (ContextMapper<T>) mapper::mapFromContext, processor)
+                    : ldapTemplate.search(base, filter, searchControls, mapper, processor);
+
+                page = results.iterator();
+
+                morePages = processor.hasMore();
+
+                logger.debug(methodName, "Page retrieved.  Results in page = ", results.size(), ", more pages = ", morePages);
+            }
+            catch (RuntimeException exception) {
+
+                close();
+
+                throw exception;
+            }
+
+        }
+
+        return page.hasNext();
+    }
+
+    /**
+     * Get next result.
+     * @return The next result
+     * @throws NoSuchElementException if there are no more results
+     */
+    public T next() {
+
+        if (hasNext() == false) {
+            throw new NoSuchElementException();
+        }
+
+        resultCount++;
+
+        return page.next();
+    }
+
+    /**
+     * Close search.  Returns the connection to the pool.
+     */
+    public void close() {
+
+        String methodName = "close";
+
+        if (closed == true) {
+            return;
+        }
+
+        closed = true;
+
+        page = Collections.emptyIterator();
+
+        contextSource.destroy();
+
+        logger.debug(methodName, "Paged search closed.  Results = ", resultCount, ", duration = ", timer.elapsedTime(TimeUnit.MILLISECONDS), " ms.");
+    }
+
+}
@@ -0,0 +1,176 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds live statistics of a pool of LDAP connections.  The statistics are maintained by
+ * the {@code ConnectionFactory} and the {@code ConnectionManager} of the pool, and may
+ * be sampled at any time without locking.
+ * @author Melior
+ * @since 2.3
+ */
+public class PoolStatistics {
+
+    private AtomicLong created;
+
+    private AtomicLong destroyed;
+
+    private AtomicInteger active;
+
+    private AtomicInteger waiting;
+
+    private volatile int concurrencyLimit;
+
+    private AtomicLong shed;
+
+    /**
+     * Constructor.
+     */
+    PoolStatistics() {
+
+        super();
+
+        created = new AtomicLong();
+
+        destroyed = new AtomicLong();
+
+        active = new AtomicInteger();
+
+        waiting = new AtomicInteger();
+
+        shed = new AtomicLong();
+    }
+
+    /**
+     * Get number of connections that have been created.
+     * @return The number of connections created
+     */
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Get number of connections that have been destroyed.
+     * @return The number of connections destroyed
+     */
+    public long getDestroyed() {
+        return destroyed.get();
+    }
+
+    /**
+     * Get number of connections that are open.
+     * @return The number of open connections
+     */
+    public int getOpen() {
+        return (int) (created.get() - destroyed.get());
+    }
+
+    /**
+     * Get number of connections that are borrowed from the pool.
+     * @return The number of active connections
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Get number of open connections that are not borrowed from the pool.
+     * @return The number of idle connections
+     */
+    public int getIdle() {
+        return Math.max(0, getOpen() - getActive());
+    }
+
+    /**
+     * Get number of callers that are waiting to borrow a connection from the pool.
+     * @return The number of waiting callers
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * Get current limit on the number of requests in flight, when adaptive concurrency
+     * limiting is enabled.
+     * @return The concurrency limit, or zero if adaptive concurrency limiting is not enabled
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Get number of callers that were shed because the concurrency limit was reached.
+     * @return The number of shed callers
+     */
+    public long getShed() {
+        return shed.get();
+    }
+
+    /**
+     * Record that a connection was created.
+     */
+    void connectionCreated() {
+        created.incrementAndGet();
+    }
+
+    /**
+     * Record that a connection was destroyed.
+     */
+    void connectionDestroyed() {
+        destroyed.incrementAndGet();
+    }
+
+    /**
+     * Record that a caller started waiting to borrow a connection.
+     */
+    void borrowStarted() {
+        waiting.incrementAndGet();
+    }
+
+    /**
+     * Record that a caller stopped waiting to borrow a connection.
+     * @param borrowed true if the caller borrowed a connection, false otherwise
+     */
+    void borrowEnded(
+        final boolean borrowed) {
+
+        waiting.decrementAndGet();
+
+        if (borrowed == true) {
+            active.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * Record that a borrowed connection was returned to the pool.
+     */
+    void connectionReleased() {
+        active.decrementAndGet();
+    }
+
+    /**
+     * Record that the concurrency limit changed.
+     * @param limit The new concurrency limit
+     */
+    void limitChanged(
+        final int limit) {
+        concurrencyLimit = limit;
+    }
+
+    /**
+     * Record that a caller was shed because the concurrency limit was reached.
+     */
+    void requestShed() {
+        shed.incrementAndGet();
+    }
+
+}
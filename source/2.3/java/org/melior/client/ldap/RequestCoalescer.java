@@ -0,0 +1,154 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.melior.client.exception.RemotingException;
+import org.melior.service.exception.ExceptionType;
+
+/**
+ * Coalesces concurrent identical LDAP searches into a single request.  The first
+ * caller of a search performs the request, while the callers that arrive while the
+ * request is in flight wait for it to complete and share its result, or its failure.
+ * The wait is bounded by the deadline of the caller, or by the request timeout if
+ * there is no deadline, so that a request that hangs does not block its waiters for
+ * longer than it would have blocked them had they performed the request themselves.
+ * @author Melior
+ * @since 2.3
+ */
+class RequestCoalescer {
+
+    private Map<SearchCache.Key, CompletableFuture<List<?>>> requests;
+
+    private long timeout;
+
+    /**
+     * Constructor.
+     * @param timeout The time to wait for a request in flight, in milliseconds, or zero to wait indefinitely
+     */
+    RequestCoalescer(
+        final long timeout) {
+
+        super();
+
+        this.requests = new ConcurrentHashMap<SearchCache.Key, CompletableFuture<List<?>>>();
+
+        this.timeout = timeout;
+    }
+
+    /**
+     * Execute request, or wait for an identical request that is already in flight.
+     * @param <T> The type
+     * @param key The key that identifies the request
+     * @param request The request
+     * @return The result of the request
+     * @throws RemotingException if the request fails
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> execute(
+        final SearchCache.Key key,
+        final Request<T> request) throws RemotingException {
+
+        CompletableFuture<List<?>> future;
+        CompletableFuture<List<?>> inFlight;
+        List<T> result;
+
+        future = new CompletableFuture<List<?>>();
+
+        inFlight = requests.putIfAbsent(key, future);
+
+        if (inFlight != null) {
+            return new ArrayList<T>((List<T>) await(inFlight));
+        }
+
+        try {
+
+            result = request.execute();
+
+            future.complete(result);
+
+            return result;
+        }
+        catch (Throwable exception) {
+
+            future.completeExceptionally(exception);
+
+            throw exception;
+        }
+        finally {
+
+            requests.remove(key, future);
+        }
+
+    }
+
+    /**
+     * Wait for request that is in flight.
+     * @param inFlight The future result of the request
+     * @return The result of the request
+     * @throws RemotingException if the request fails, or if the wait is interrupted or times out
+     */
+    private List<?> await(
+        final CompletableFuture<List<?>> inFlight) throws RemotingException {
+
+        Deadline deadline;
+
+        deadline = Deadline.current();
+
+        try {
+
+            if (deadline != null) {
+                return inFlight.get(Math.max(0, deadline.remaining(TimeUnit.NANOSECONDS)), TimeUnit.NANOSECONDS);
+            }
+
+            return (timeout > 0) ? inFlight.get(timeout, TimeUnit.MILLISECONDS) : inFlight.get();
+        }
+        catch (TimeoutException exception) {
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, "Timed out waiting for request in flight.", exception);
+        }
+        catch (InterruptedException exception) {
+
+            Thread.currentThread().interrupt();
+
+            throw new RemotingException(ExceptionType.LOCAL_APPLICATION, "Interrupted while waiting for request in flight.", exception);
+        }
+        catch (ExecutionException exception) {
+
+            if (exception.getCause() instanceof RemotingException) {
+                throw (RemotingException) exception.getCause();
+            }
+
+            throw new RemotingException(ExceptionType.REMOTING_COMMUNICATION, exception.getCause().getMessage(), exception.getCause());
+        }
+
+    }
+
+    /**
+     * Request that may be coalesced.
+     * @param <T> The type
+     */
+    @FunctionalInterface
+    interface Request<T> {
+
+        /**
+         * Execute request.
+         * @return The result of the request
+         * @throws RemotingException if the request fails
+         */
+        List<T> execute() throws RemotingException;
+
+    }
+
+}
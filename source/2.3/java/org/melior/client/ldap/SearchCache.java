@@ -0,0 +1,325 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.ldap.query.LdapQuery;
+
+/**
+ * Implements a bounded, read-through cache for the results of LDAP searches.  The
+ * results are keyed on the base, filter, scope, count limit and requested attributes
+ * of the query, along with the entity type that the results are mapped to.
+ * <p>
+ * Entries expire once their time to live has passed, and the least recently used entry
+ * is evicted when the cache is full.  Empty results are cached with a separate, typically
+ * shorter, time to live, so that repeated lookups of missing entries do not each reach
+ * the LDAP server.  The cache is invalidated in full whenever the
+ * client that owns it writes to the LDAP server.  The hit, miss and eviction counters
+ * may be used to size the cache.
+ * @author Melior
+ * @since 2.3
+ */
+public class SearchCache {
+
+    private int maximumSize;
+
+    private long timeToLive;
+
+    private long negativeTimeToLive;
+
+    private Map<Key, Entry> entries;
+
+    private long generation;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * Constructor.
+     * @param maximumSize The maximum number of results to cache
+     * @param timeToLive The time to live of a cached result, in milliseconds
+     * @param negativeTimeToLive The time to live of a cached empty result, in milliseconds
+     */
+    SearchCache(
+        final int maximumSize,
+        final long timeToLive,
+        final long negativeTimeToLive) {
+
+        super();
+
+        this.maximumSize = maximumSize;
+
+        this.timeToLive = timeToLive;
+
+        this.negativeTimeToLive = negativeTimeToLive;
+
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    }
+
+    /**
+     * Create cache key for query.
+     * @param query The LDAP query
+     * @param entityType The response entity type
+     * @return The cache key
+     */
+    static Key keyOf(
+        final LdapQuery query,
+        final Class<?> entityType) {
+
+        return new Key(entityType, String.valueOf(query.base()), query.filter().encode(),
+            (query.searchScope() == null) ? null : query.searchScope().name(), query.countLimit(),
+            (query.attributes() == null) ? null : Arrays.asList(query.attributes().clone()));
+    }
+
+    /**
+     * Get cached result.
+     * @param <T> The type
+     * @param key The cache key
+     * @return A copy of the cached result, or null if the result is not cached or has expired
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T> List<T> get(
+        final Key key) {
+
+        Entry entry;
+
+        entry = entries.get(key);
+
+        if ((entry != null) && (entry.expiry <= System.currentTimeMillis())) {
+
+            entries.remove(key);
+
+            evictions++;
+
+            entry = null;
+        }
+
+        if (entry == null) {
+
+            misses++;
+
+            return null;
+        }
+
+        hits++;
+
+        return new ArrayList<T>((List<T>) entry.result);
+    }
+
+    /**
+     * Get generation of cache.  The generation changes whenever the cache is invalidated.
+     * @return The generation
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Store result in cache.  The result is not stored if the cache was invalidated after
+     * the result was requested from the LDAP server, as the result may then be stale, or
+     * if the applicable time to live is zero.
+     * @param key The cache key
+     * @param result The result
+     * @param generation The generation of the cache at the time the result was requested
+     */
+    synchronized void put(
+        final Key key,
+        final List<?> result,
+        final long generation) {
+
+        Iterator<Entry> iterator;
+        long entryTimeToLive;
+
+        entryTimeToLive = (result.isEmpty() == true) ? negativeTimeToLive : timeToLive;
+
+        if ((generation != this.generation) || (entryTimeToLive <= 0)) {
+            return;
+        }
+
+        entries.put(key, new Entry(new ArrayList<Object>(result), System.currentTimeMillis() + entryTimeToLive));
+
+        iterator = entries.values().iterator();
+
+        while ((entries.size() > maximumSize) && (iterator.hasNext() == true)) {
+
+            iterator.next();
+            iterator.remove();
+
+            evictions++;
+        }
+
+    }
+
+    /**
+     * Invalidate all cached results.
+     */
+    synchronized void invalidate() {
+
+        entries.clear();
+
+        generation++;
+    }
+
+    /**
+     * Get number of cached results.
+     * @return The number of cached results
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Get number of cache hits.
+     * @return The number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get number of cache misses.
+     * @return The number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get number of cached results that were evicted, either because they expired,
+     * or because the cache was full.
+     * @return The number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Identifies a cached result.
+     */
+    static final class Key {
+
+        private Class<?> entityType;
+
+        private String base;
+
+        private String filter;
+
+        private String scope;
+
+        private Integer countLimit;
+
+        private List<String> attributes;
+
+        private int hashCode;
+
+        /**
+         * Constructor.
+         * @param entityType The response entity type
+         * @param base The search base
+         * @param filter The search filter
+         * @param scope The search scope
+         * @param countLimit The count limit
+         * @param attributes The requested attributes
+         */
+        Key(
+            final Class<?> entityType,
+            final String base,
+            final String filter,
+            final String scope,
+            final Integer countLimit,
+            final List<String> attributes) {
+
+            super();
+
+            this.entityType = entityType;
+
+            this.base = base;
+
+            this.filter = filter;
+
+            this.scope = scope;
+
+            this.countLimit = countLimit;
+
+            this.attributes = attributes;
+
+            this.hashCode = Objects.hash(entityType, base, filter, scope, countLimit, attributes);
+        }
+
+        /**
+         * Get hash code.
+         * @return The hash code
+         */
+        public int hashCode() {
+            return hashCode;
+        }
+
+        /**
+         * Check whether the key is equal to another key.
+         * @param object The other key
+         * @return true if the keys are equal, false otherwise
+         */
+        public boolean equals(
+            final Object object) {
+
+            Key key;
+
+            if (object == this) {
+                return true;
+            }
+
+            if ((object instanceof Key) == false) {
+                return false;
+            }
+
+            key = (Key) object;
+
+            return (entityType == key.entityType) && Objects.equals(base, key.base) && Objects.equals(filter, key.filter)
+                && Objects.equals(scope, key.scope) && Objects.equals(countLimit, key.countLimit)
+                && Objects.equals(attributes, key.attributes);
+        }
+
+    }
+
+    /**
+     * Holds a cached result along with its expiry time.
+     */
+    private static final class Entry {
+
+        private List<?> result;
+
+        private long expiry;
+
+        /**
+         * Constructor.
+         * @param result The result
+         * @param expiry The expiry time, in milliseconds since the epoch
+         */
+        Entry(
+            final List<?> result,
+            final long expiry) {
+
+            super();
+
+            this.result = result;
+
+            this.expiry = expiry;
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds a window of the sorted results of an LDAP search, as returned by the
+ * {@code searchWindow} operations of an {@code LdapClient}.  Along with the results,
+ * the window holds the position of the window and the number of entries in the
+ * full sorted result, as reported by the LDAP server, which may be used to render
+ * a paged listing without retrieving the full result.
+ * @author Melior
+ * @since 2.3
+ */
+public class SearchWindow<T> {
+
+    private List<T> results;
+
+    private int offset;
+
+    private int totalCount;
+
+    private byte[] contextId;
+
+    /**
+     * Constructor.
+     * @param results The results in the window
+     * @param offset The zero based offset of the first result in the window
+     * @param totalCount The number of entries in the full sorted result
+     * @param contextId The context identifier that the LDAP server returned, or null
+     */
+    SearchWindow(
+        final List<T> results,
+        final int offset,
+        final int totalCount,
+        final byte[] contextId) {
+
+        super();
+
+        this.results = Collections.unmodifiableList(results);
+
+        this.offset = offset;
+
+        this.totalCount = totalCount;
+
+        this.contextId = contextId;
+    }
+
+    /**
+     * Get results in the window.
+     * @return The results, in sort order
+     */
+    public List<T> getResults() {
+        return results;
+    }
+
+    /**
+     * Get offset of the window.  The LDAP server may position the window differently
+     * from the requested offset, for example when the requested offset is beyond the
+     * end of the sorted result.
+     * @return The zero based offset of the first result in the window
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get number of entries in the full sorted result.  The LDAP server may return
+     * an estimate.
+     * @return The total count
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get context identifier that the LDAP server returned with the window.  The
+     * context identifier may be supplied with the request for a subsequent window
+     * of the same search, to allow the LDAP server to reuse the sorted result.
+     * @return The context identifier, or null if none was returned
+     */
+    public byte[] getContextId() {
+        return contextId;
+    }
+
+}
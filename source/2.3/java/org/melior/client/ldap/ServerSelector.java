@@ -0,0 +1,171 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Orders the LDAP servers of an {@code LdapClient} by preference, according to the
+ * configured load balancing strategy, whenever a new connection must be opened.
+ * The servers that are available come first, in the order of the strategy, followed
+ * by the servers that are in backoff, as a last resort.
+ * @author Melior
+ * @since 2.3
+ * @see LoadBalancing
+ */
+class ServerSelector {
+
+    private List<LdapServer> servers;
+
+    private LoadBalancing loadBalancing;
+
+    private AtomicInteger nextServer;
+
+    /**
+     * Constructor.
+     * @param servers The servers
+     * @param loadBalancing The load balancing strategy
+     */
+    ServerSelector(
+        final List<LdapServer> servers,
+        final LoadBalancing loadBalancing) {
+
+        super();
+
+        this.servers = servers;
+
+        this.loadBalancing = (loadBalancing == null) ? LoadBalancing.ROUND_ROBIN : loadBalancing;
+
+        this.nextServer = new AtomicInteger();
+    }
+
+    /**
+     * Get servers.
+     * @return The servers, in the order in which they were configured
+     */
+    List<LdapServer> getServers() {
+        return servers;
+    }
+
+    /**
+     * Get servers in order of preference for a new connection.
+     * @return The servers in order of preference
+     */
+    List<LdapServer> select() {
+
+        List<LdapServer> available;
+        List<LdapServer> unavailable;
+        int offset;
+
+        if (servers.size() == 1) {
+            return servers;
+        }
+
+        available = new ArrayList<LdapServer>(servers.size());
+        unavailable = new ArrayList<LdapServer>();
+
+        offset = (loadBalancing == LoadBalancing.PRIMARY_WITH_FALLBACK) ? 0 : Math.floorMod(nextServer.getAndIncrement(), servers.size());
+
+        for (int i = 0; i < servers.size(); i++) {
+
+            LdapServer server = servers.get((offset + i) % servers.size());
+
+            if (server.isAvailable() == true) {
+                available.add(server);
+            }
+            else {
+                unavailable.add(server);
+            }
+
+        }
+
+        switch (loadBalancing) {
+
+        case LEAST_OUTSTANDING:
+            Collections.sort(available, Comparator.comparingInt(LdapServer::getOutstandingRequests));
+            break;
+
+        case LATENCY_WEIGHTED:
+            moveWeightedChoiceToFront(available);
+            break;
+
+        default:
+            break;
+        }
+
+        available.addAll(unavailable);
+
+        return available;
+    }
+
+    /**
+     * Move a server chosen at random to the front of the list, with the probability of
+     * each server being chosen inversely proportional to its latency.  Servers without
+     * a latency measurement yet are weighted as the fastest server, so that they are
+     * measured.
+     * @param servers The servers
+     */
+    private static void moveWeightedChoiceToFront(
+        final List<LdapServer> servers) {
+
+        double[] weights;
+        double minimumLatency;
+        double totalWeight;
+        double choice;
+        int chosen;
+
+        if (servers.size() < 2) {
+            return;
+        }
+
+        weights = new double[servers.size()];
+        minimumLatency = Double.MAX_VALUE;
+        totalWeight = 0;
+
+        for (LdapServer server : servers) {
+
+            if (server.getLatency() > 0) {
+                minimumLatency = Math.min(minimumLatency, server.getLatency());
+            }
+
+        }
+
+        if (minimumLatency == Double.MAX_VALUE) {
+            minimumLatency = 1;
+        }
+
+        for (int i = 0; i < servers.size(); i++) {
+
+            weights[i] = 1 / ((servers.get(i).getLatency() > 0) ? servers.get(i).getLatency() : minimumLatency);
+
+            totalWeight += weights[i];
+        }
+
+        choice = ThreadLocalRandom.current().nextDouble(totalWeight);
+        chosen = servers.size() - 1;
+
+        for (int i = 0; i < weights.length; i++) {
+
+            choice -= weights[i];
+
+            if (choice < 0) {
+                chosen = i;
+                break;
+            }
+
+        }
+
+        servers.add(0, servers.remove(chosen));
+    }
+
+}
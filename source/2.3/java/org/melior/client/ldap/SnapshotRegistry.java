@@ -0,0 +1,137 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds snapshots of the attribute values that were loaded into mapped instances, so
+ * that a subsequent modify of an instance needs to send only the values that changed.
+ * <p>
+ * The instances are held by identity and weakly, so that a snapshot is discarded
+ * once the instance that it belongs to is no longer in use.
+ * @author Melior
+ * @since 2.3
+ */
+class SnapshotRegistry {
+
+    private ReferenceQueue<Object> referenceQueue;
+
+    private Map<InstanceReference, Object[]> snapshots;
+
+    /**
+     * Constructor.
+     */
+    SnapshotRegistry() {
+
+        super();
+
+        this.referenceQueue = new ReferenceQueue<Object>();
+
+        this.snapshots = new ConcurrentHashMap<InstanceReference, Object[]>();
+    }
+
+    /**
+     * Store snapshot of instance.
+     * @param instance The instance
+     * @param snapshot The snapshot of the attribute values of the instance
+     */
+    void put(
+        final Object instance,
+        final Object[] snapshot) {
+
+        purge();
+
+        snapshots.put(new InstanceReference(instance, referenceQueue), snapshot);
+    }
+
+    /**
+     * Get snapshot of instance.
+     * @param instance The instance
+     * @return The snapshot of the attribute values of the instance, or null if there is none
+     */
+    Object[] get(
+        final Object instance) {
+
+        purge();
+
+        return snapshots.get(new InstanceReference(instance, null));
+    }
+
+    /**
+     * Remove the snapshots of instances that are no longer in use.
+     */
+    private void purge() {
+
+        Reference<?> reference;
+
+        while ((reference = referenceQueue.poll()) != null) {
+            snapshots.remove(reference);
+        }
+
+    }
+
+    /**
+     * Weak reference to an instance that is compared by identity.
+     */
+    private static final class InstanceReference extends WeakReference<Object> {
+
+        private int hashCode;
+
+        /**
+         * Constructor.
+         * @param instance The instance
+         * @param referenceQueue The queue on which to register the reference
+         */
+        InstanceReference(
+            final Object instance,
+            final ReferenceQueue<Object> referenceQueue) {
+
+            super(instance, referenceQueue);
+
+            this.hashCode = System.identityHashCode(instance);
+        }
+
+        /**
+         * Get hash code.
+         * @return The identity hash code of the instance
+         */
+        public int hashCode() {
+            return hashCode;
+        }
+
+        /**
+         * Check whether the reference refers to the same instance as another reference.
+         * @param object The other reference
+         * @return true if both references refer to the same instance, false otherwise
+         */
+        public boolean equals(
+            final Object object) {
+
+            Object instance;
+
+            if (object == this) {
+                return true;
+            }
+
+            if ((object instanceof InstanceReference) == false) {
+                return false;
+            }
+
+            instance = get();
+
+            return (instance != null) && (instance == ((InstanceReference) object).get());
+        }
+
+    }
+
+}
@@ -0,0 +1,264 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap;
+import java.io.IOException;
+import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.BasicControl;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.SortControl;
+import javax.naming.ldap.SortKey;
+import javax.naming.ldap.SortResponseControl;
+import org.springframework.ldap.core.DirContextProcessor;
+
+/**
+ * Requests an LDAP search to be sorted by the LDAP server, using the server side
+ * sort control of RFC 2891, and optionally to return only a window of the sorted
+ * results, using the virtual list view control.  Both controls are marked critical,
+ * so that a server that does not support them fails the search rather than return
+ * unsorted or unbounded results.
+ * <p>
+ * The JDK does not provide the virtual list view control, hence its request value
+ * and response value are encoded and decoded here, with the {@code BerCodec}.  The
+ * request controls are removed from the pooled context once the search completes.
+ * @author Melior
+ * @since 2.3
+ */
+class SortedSearchProcessor implements DirContextProcessor {
+
+    static final String VLV_REQUEST_OID = "2.16.840.1.113730.3.4.9";
+
+    static final String VLV_RESPONSE_OID = "2.16.840.1.113730.3.4.10";
+
+    private SortKey[] sortKeys;
+
+    private int offset;
+
+    private int count;
+
+    private byte[] contextId;
+
+    private int targetPosition;
+
+    private int contentCount;
+
+    /**
+     * Constructor.  The search is sorted, but not windowed.
+     * @param sortKeys The sort keys
+     */
+    SortedSearchProcessor(
+        final SortKey[] sortKeys) {
+        this(sortKeys, 0, 0, null);
+    }
+
+    /**
+     * Constructor.
+     * @param sortKeys The sort keys
+     * @param offset The zero based offset of the first result in the window
+     * @param count The number of results in the window, or zero if the search is not windowed
+     * @param contextId The context identifier that the LDAP server returned for a previous window, or null
+     */
+    SortedSearchProcessor(
+        final SortKey[] sortKeys,
+        final int offset,
+        final int count,
+        final byte[] contextId) {
+
+        super();
+
+        if ((sortKeys == null) || (sortKeys.length == 0)) {
+            throw new IllegalArgumentException("At least one sort key must be supplied.");
+        }
+
+        if ((offset < 0) || (count < 0)) {
+            throw new IllegalArgumentException("Offset and count must not be negative.");
+        }
+
+        this.sortKeys = sortKeys;
+
+        this.offset = offset;
+
+        this.count = count;
+
+        this.contextId = contextId;
+    }
+
+    /**
+     * Attach request controls to the context before the search.
+     * @param context The context
+     * @throws NamingException if unable to create the request controls
+     */
+    public void preProcess(
+        final DirContext context) throws NamingException {
+
+        Control[] controls;
+
+        try {
+
+            controls = (count == 0)
+                ? new Control[] {new SortControl(sortKeys, Control.CRITICAL)}
+                : new Control[] {new SortControl(sortKeys, Control.CRITICAL),
+                    new BasicControl(VLV_REQUEST_OID, Control.CRITICAL, encodeRequest(offset + 1, count, contextId))};
+        }
+        catch (IOException exception) {
+            throw new OperationNotSupportedException("Failed to create sort control: " + exception.getMessage());
+        }
+
+        ((LdapContext) context).setRequestControls(controls);
+    }
+
+    /**
+     * Read response controls from the context after the search, and remove the
+     * request controls from the context.
+     * @param context The context
+     * @throws NamingException if the LDAP server did not sort or window the results
+     */
+    public void postProcess(
+        final DirContext context) throws NamingException {
+
+        LdapContext ldapContext;
+        Control[] controls;
+        int[] response = null;
+
+        ldapContext = (LdapContext) context;
+
+        controls = ldapContext.getResponseControls();
+
+        ldapContext.setRequestControls(null);
+
+        if (controls != null) {
+
+            for (Control control : controls) {
+
+                if ((control instanceof SortResponseControl) && (((SortResponseControl) control).isSorted() == false)) {
+                    throw ((SortResponseControl) control).getException();
+                }
+
+                if (VLV_RESPONSE_OID.equals(control.getID()) == true) {
+                    response = decodeResponse(control.getEncodedValue());
+                }
+
+            }
+
+        }
+
+        if (count == 0) {
+            return;
+        }
+
+        if (response == null) {
+            throw new OperationNotSupportedException("LDAP server did not return a virtual list view response.");
+        }
+
+        if (response[2] != 0) {
+            throw new OperationNotSupportedException("Virtual list view failed with result code " + response[2] + ".");
+        }
+
+        targetPosition = response[0];
+
+        contentCount = response[1];
+    }
+
+    /**
+     * Get position of the first result of the window, as reported by the LDAP server.
+     * @return The one based position of the first result
+     */
+    int getTargetPosition() {
+        return targetPosition;
+    }
+
+    /**
+     * Get number of entries in the sorted result, as estimated by the LDAP server.
+     * @return The content count
+     */
+    int getContentCount() {
+        return contentCount;
+    }
+
+    /**
+     * Get context identifier that the LDAP server returned with the window.
+     * @return The context identifier, or null if none was returned
+     */
+    byte[] getContextId() {
+        return contextId;
+    }
+
+    /**
+     * Encode value of virtual list view request control, which selects the window by
+     * offset, with the target as the first result of the window.
+     * <pre>
+     * VirtualListViewRequest ::= SEQUENCE {
+     *     beforeCount    INTEGER,
+     *     afterCount     INTEGER,
+     *     byOffset       [0] SEQUENCE { offset INTEGER, contentCount INTEGER },
+     *     contextID      OCTET STRING OPTIONAL }
+     * </pre>
+     * @param target The one based position of the target
+     * @param count The number of results in the window
+     * @param contextId The context identifier, or null
+     * @return The encoded value
+     */
+    static byte[] encodeRequest(
+        final int target,
+        final int count,
+        final byte[] contextId) {
+
+        return BerCodec.sequence(
+            BerCodec.integer(0),
+            BerCodec.integer(count - 1),
+            BerCodec.constructed(0xA0, BerCodec.integer(target), BerCodec.integer(0)),
+            (contextId == null) ? null : BerCodec.octets(contextId));
+    }
+
+    /**
+     * Decode value of virtual list view response control.
+     * <pre>
+     * VirtualListViewResponse ::= SEQUENCE {
+     *     targetPosition         INTEGER,
+     *     contentCount           INTEGER,
+     *     virtualListViewResult  ENUMERATED,
+     *     contextID              OCTET STRING OPTIONAL }
+     * </pre>
+     * @param value The encoded value
+     * @return The target position, content count and result code
+     * @throws NamingException if the value is malformed
+     */
+    int[] decodeResponse(
+        final byte[] value) throws NamingException {
+
+        BerCodec.Reader reader;
+        int[] result;
+        int end;
+
+        try {
+
+            reader = new BerCodec.Reader(value);
+
+            end = reader.enter(BerCodec.SEQUENCE);
+
+            result = new int[3];
+            result[0] = reader.readInteger();
+            result[1] = reader.readInteger();
+            result[2] = reader.readEnumerated();
+
+            if (reader.isNext(BerCodec.OCTET_STRING, end) == true) {
+                contextId = reader.readOctets();
+            }
+
+        }
+        catch (RuntimeException exception) {
+            throw new OperationNotSupportedException("Malformed virtual list view response.");
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,518 @@
+/* __  __      _ _            
+  |  \/  |    | (_)           
+  | \  / | ___| |_  ___  _ __ 
+  | |\/| |/ _ \ | |/ _ \| '__|
+  | |  | |  __/ | | (_) | |   
+  |_|  |_|\___|_|_|\___/|_|   
+        Service Harness
+*/
+package org.melior.client.ldap.processor;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code GeneratedMapper} at compile time for each class that has members
+ * with the {@code LdapProperty} annotation.  The generated mapper creates instances and
+ * reads and writes the annotated members with plain Java code, so that the mapping plan
+ * of the class does not need reflection or method handles to reach them.
+ * <p>
+ * The generated mapper is placed in the package of the class, so it can only reach the
+ * members that are not private.  A private field is reached through its bean setter and
+ * getter if both exist.  Members that cannot be reached are left out of the generated
+ * mapper, and are reached through reflection at runtime instead.  No mapper is generated
+ * for a class that is abstract, private, or has no accessible no-argument constructor.
+ * <p>
+ * Members of primitive types are also written through primitive setters, so that their
+ * values are not boxed on the way in.
+ * <p>
+ * The processor is registered as a service, so it runs automatically when this library
+ * is on the annotation processor path of the compiler.
+ * @author Melior
+ * @since 2.3
+ */
+@SupportedAnnotationTypes("org.melior.client.ldap.LdapProperty")
+public class LdapMapperProcessor extends AbstractProcessor {
+
+    private static final String ANNOTATION = "org.melior.client.ldap.LdapProperty";
+
+    /**
+     * Constructor.
+     */
+    public LdapMapperProcessor() {
+
+        super();
+    }
+
+    /**
+     * Get supported source version.
+     * @return The latest supported source version
+     */
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * Process annotations.
+     * @param annotations The annotation types
+     * @param roundEnvironment The round environment
+     * @return false, so that other processors may also process the annotation
+     */
+    public boolean process(
+        final Set<? extends TypeElement> annotations,
+        final RoundEnvironment roundEnvironment) {
+
+        Set<TypeElement> types;
+
+        types = new LinkedHashSet<TypeElement>();
+
+        for (TypeElement annotation : annotations) {
+
+            for (Element element : roundEnvironment.getElementsAnnotatedWith(annotation)) {
+
+                if (element.getEnclosingElement() instanceof TypeElement) {
+                    types.add((TypeElement) element.getEnclosingElement());
+                }
+
+            }
+
+        }
+
+        for (TypeElement type : types) {
+
+            if (isAccessible(type) == false) {
+
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "No LDAP mapper generated for " + type.getQualifiedName() + ", as it cannot be instantiated from its package.", type);
+
+                continue;
+            }
+
+            try {
+
+                generate(type);
+            }
+            catch (IOException exception) {
+
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to generate LDAP mapper for " + type.getQualifiedName() + ": " + exception.getMessage(), type);
+            }
+
+        }
+
+        return false;
+    }
+
+    /**
+     * Check whether type can be instantiated by a generated mapper in its package.
+     * @param type The type
+     * @return true if the type is a concrete class with an accessible no-argument constructor, false otherwise
+     */
+    private boolean isAccessible(
+        final TypeElement type) {
+
+        boolean hasConstructor = false;
+        boolean hasDefaultConstructor = false;
+        ExecutableElement constructor;
+
+        if ((type.getKind() != ElementKind.CLASS) || (type.getModifiers().contains(Modifier.ABSTRACT) == true)) {
+            return false;
+        }
+
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+
+            if (element.getModifiers().contains(Modifier.PRIVATE) == true) {
+                return false;
+            }
+
+            if ((element.getEnclosingElement() instanceof TypeElement) && (element.getModifiers().contains(Modifier.STATIC) == false)) {
+                return false;
+            }
+
+        }
+
+        for (Element element : type.getEnclosedElements()) {
+
+            if (element.getKind() == ElementKind.CONSTRUCTOR) {
+
+                hasConstructor = true;
+                constructor = (ExecutableElement) element;
+
+                if ((constructor.getParameters().isEmpty() == true) && (constructor.getModifiers().contains(Modifier.PRIVATE) == false)) {
+                    hasDefaultConstructor = true;
+                }
+
+            }
+
+        }
+
+        return (hasConstructor == false) || (hasDefaultConstructor == true);
+    }
+
+    /**
+     * Generate mapper for type.
+     * @param type The type
+     * @throws IOException if unable to write the source of the mapper
+     */
+    private void generate(
+        final TypeElement type) throws IOException {
+
+        String packageName;
+        String mapperName;
+        String typeName;
+        Map<String, String> getters;
+        Map<String, String> setters;
+        Map<String, TypeMirror> setterTypes;
+        List<String> members;
+        StringBuilder source;
+
+        packageName = getPackage(type).getQualifiedName().toString();
+        mapperName = getMapperName(type);
+        typeName = type.getQualifiedName().toString();
+        getters = new LinkedHashMap<String, String>();
+        setters = new LinkedHashMap<String, String>();
+        setterTypes = new LinkedHashMap<String, TypeMirror>();
+
+        for (Element element : type.getEnclosedElements()) {
+
+            if ((hasAnnotation(element) == false) || (element.getModifiers().contains(Modifier.STATIC) == true)) {
+                continue;
+            }
+
+            if (element.getKind() == ElementKind.FIELD) {
+                addField(type, (VariableElement) element, getters, setters, setterTypes);
+            }
+            else if (element.getKind() == ElementKind.METHOD) {
+                addMethod((ExecutableElement) element, getters, setters, setterTypes);
+            }
+
+        }
+
+        members = new ArrayList<String>(getters.keySet());
+
+        for (String member : setters.keySet()) {
+
+            if (members.contains(member) == false) {
+                members.add(member);
+            }
+
+        }
+
+        source = new StringBuilder();
+
+        if (packageName.isEmpty() == false) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+
+        source.append("/**\n");
+        source.append(" * Mapper for {@code ").append(typeName).append("}, generated from its {@code LdapProperty} annotations.\n");
+        source.append(" */\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(mapperName).append(" implements org.melior.client.ldap.GeneratedMapper<").append(typeName).append("> {\n\n");
+
+        source.append("    public ").append(typeName).append(" newInstance() {\n");
+        source.append("        return new ").append(typeName).append("();\n");
+        source.append("    }\n\n");
+
+        source.append("    public int indexOf(final String member) {\n");
+        source.append("        switch (member) {\n");
+
+        for (int i = 0; i < members.size(); i++) {
+            source.append("        case \"").append(members.get(i)).append("\": return ").append(i).append(";\n");
+        }
+
+        source.append("        default: return -1;\n");
+        source.append("        }\n");
+        source.append("    }\n\n");
+
+        source.append("    public void set(final ").append(typeName).append(" instance, final int index, final Object value) {\n");
+        source.append("        switch (index) {\n");
+
+        for (int i = 0; i < members.size(); i++) {
+
+            if (setters.containsKey(members.get(i)) == true) {
+                source.append("        case ").append(i).append(": ")
+                    .append(String.format(setters.get(members.get(i)), "(" + getCastType(setterTypes.get(members.get(i))) + ") value")).append("; return;\n");
+            }
+
+        }
+
+        source.append("        default: throw new IllegalArgumentException(\"No writable member at index \" + index);\n");
+        source.append("        }\n");
+        source.append("    }\n\n");
+
+        appendPrimitiveSetter(source, typeName, "setLong", "long", members, setters, setterTypes,
+            TypeKind.LONG, TypeKind.INT, TypeKind.SHORT, TypeKind.BYTE);
+        appendPrimitiveSetter(source, typeName, "setDouble", "double", members, setters, setterTypes,
+            TypeKind.DOUBLE, TypeKind.FLOAT);
+        appendPrimitiveSetter(source, typeName, "setBoolean", "boolean", members, setters, setterTypes,
+            TypeKind.BOOLEAN);
+
+        source.append("    public Object get(final ").append(typeName).append(" instance, final int index) {\n");
+        source.append("        switch (index) {\n");
+
+        for (int i = 0; i < members.size(); i++) {
+
+            if (getters.containsKey(members.get(i)) == true) {
+                source.append("        case ").append(i).append(": return ").append(getters.get(members.get(i))).append(";\n");
+            }
+
+        }
+
+        source.append("        default: throw new IllegalArgumentException(\"No readable member at index \" + index);\n");
+        source.append("        }\n");
+        source.append("    }\n\n");
+
+        source.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(
+            (packageName.isEmpty() == true) ? mapperName : packageName + "." + mapperName, type).openWriter()) {
+
+            writer.write(source.toString());
+        }
+
+    }
+
+    /**
+     * Append primitive setter, which writes the members of the supplied primitive types
+     * without boxing.
+     * @param source The source of the mapper
+     * @param typeName The name of the type
+     * @param methodName The name of the primitive setter
+     * @param valueType The type of the value that the primitive setter accepts
+     * @param members The member names, in index order
+     * @param setters The map of member names to setter targets
+     * @param setterTypes The map of member names to the types of the values that their setters accept
+     * @param kinds The primitive types of the members that the primitive setter writes
+     */
+    private void appendPrimitiveSetter(
+        final StringBuilder source,
+        final String typeName,
+        final String methodName,
+        final String valueType,
+        final List<String> members,
+        final Map<String, String> setters,
+        final Map<String, TypeMirror> setterTypes,
+        final TypeKind... kinds) {
+
+        TypeMirror memberType;
+
+        source.append("    public void ").append(methodName).append("(final ").append(typeName)
+            .append(" instance, final int index, final ").append(valueType).append(" value) {\n");
+        source.append("        switch (index) {\n");
+
+        for (int i = 0; i < members.size(); i++) {
+
+            memberType = setterTypes.get(members.get(i));
+
+            if ((memberType != null) && (Arrays.asList(kinds).contains(memberType.getKind()) == true)) {
+                source.append("        case ").append(i).append(": ")
+                    .append(String.format(setters.get(members.get(i)), "(" + memberType + ") value")).append("; return;\n");
+            }
+
+        }
+
+        source.append("        default: throw new IllegalArgumentException(\"No ").append(valueType).append(" member at index \" + index);\n");
+        source.append("        }\n");
+        source.append("    }\n\n");
+    }
+
+    /**
+     * Add accessors for annotated field.  A field that is not private is accessed directly.
+     * A private field is accessed through its bean setter and getter, and is left out if
+     * either is missing.
+     * @param type The type that declares the field
+     * @param field The field
+     * @param getters The map of member names to getter expressions
+     * @param setters The map of member names to setter targets, in which {@code %s} stands for the value
+     * @param setterTypes The map of member names to the types of the values that their setters accept
+     */
+    private void addField(
+        final TypeElement type,
+        final VariableElement field,
+        final Map<String, String> getters,
+        final Map<String, String> setters,
+        final Map<String, TypeMirror> setterTypes) {
+
+        String name;
+        String capitalized;
+        boolean isFinal;
+        String getter = null;
+        String setter = null;
+        TypeMirror setterType = null;
+        ExecutableElement method;
+
+        name = field.getSimpleName().toString();
+        isFinal = field.getModifiers().contains(Modifier.FINAL);
+
+        if (field.getModifiers().contains(Modifier.PRIVATE) == false) {
+
+            getters.put(name, "instance." + name);
+
+            if (isFinal == false) {
+
+                setters.put(name, "instance." + name + " = %s");
+                setterTypes.put(name, field.asType());
+            }
+
+            return;
+        }
+
+        capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+        for (Element element : type.getEnclosedElements()) {
+
+            if ((element.getKind() != ElementKind.METHOD) || (element.getModifiers().contains(Modifier.PRIVATE) == true)
+                || (element.getModifiers().contains(Modifier.STATIC) == true)) {
+                continue;
+            }
+
+            method = (ExecutableElement) element;
+
+            if ((method.getParameters().isEmpty() == true) && (method.getReturnType().getKind() != TypeKind.VOID)
+                && (method.getSimpleName().contentEquals("get" + capitalized) || method.getSimpleName().contentEquals("is" + capitalized))) {
+
+                getter = "instance." + method.getSimpleName() + "()";
+            }
+            else if ((method.getParameters().size() == 1) && method.getSimpleName().contentEquals("set" + capitalized)) {
+
+                setter = "instance." + method.getSimpleName() + "(%s)";
+                setterType = method.getParameters().get(0).asType();
+            }
+
+        }
+
+        if ((getter == null) || ((setter == null) && (isFinal == false))) {
+            return;
+        }
+
+        getters.put(name, getter);
+
+        if (setter != null) {
+
+            setters.put(name, setter);
+            setterTypes.put(name, setterType);
+        }
+
+    }
+
+    /**
+     * Add accessor for annotated setter or getter method.  Private methods are left out.
+     * @param method The method
+     * @param getters The map of member names to getter expressions
+     * @param setters The map of member names to setter targets, in which {@code %s} stands for the value
+     * @param setterTypes The map of member names to the types of the values that their setters accept
+     */
+    private void addMethod(
+        final ExecutableElement method,
+        final Map<String, String> getters,
+        final Map<String, String> setters,
+        final Map<String, TypeMirror> setterTypes) {
+
+        String name;
+
+        if (method.getModifiers().contains(Modifier.PRIVATE) == true) {
+            return;
+        }
+
+        name = method.getSimpleName() + "()";
+
+        if (method.getParameters().size() == 1) {
+
+            setters.put(name, "instance." + method.getSimpleName() + "(%s)");
+            setterTypes.put(name, method.getParameters().get(0).asType());
+        }
+        else if ((method.getParameters().isEmpty() == true) && (method.getReturnType().getKind() != TypeKind.VOID)) {
+            getters.put(name, "instance." + method.getSimpleName() + "()");
+        }
+
+    }
+
+    /**
+     * Check whether element carries the {@code LdapProperty} annotation.
+     * @param element The element
+     * @return true if the element is annotated, false otherwise
+     */
+    private boolean hasAnnotation(
+        final Element element) {
+
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(ANNOTATION) == true) {
+                return true;
+            }
+
+        }
+
+        return false;
+    }
+
+    /**
+     * Get type to which a value must be cast before it is assigned to a member.
+     * Primitive types are cast through their boxed type, and generic types through
+     * their raw type.
+     * @param type The member type
+     * @return The cast type
+     */
+    private String getCastType(
+        final TypeMirror type) {
+
+        if (type.getKind().isPrimitive() == true) {
+            return processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(type.getKind())).getQualifiedName().toString();
+        }
+
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * Get package of type.
+     * @param type The type
+     * @return The package
+     */
+    private PackageElement getPackage(
+        final TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type);
+    }
+
+    /**
+     * Get name of mapper for type, which is the name of the type and of the types that
+     * enclose it, separated by underscores, with the suffix {@code _LdapMapper}.
+     * @param type The type
+     * @return The name of the mapper
+     */
+    private String getMapperName(
+        final TypeElement type) {
+
+        String name;
+
+        name = type.getSimpleName().toString();
+
+        for (Element element = type.getEnclosingElement(); element instanceof TypeElement; element = element.getEnclosingElement()) {
+            name = element.getSimpleName() + "_" + name;
+        }
+
+        return name + "_LdapMapper";
+    }
+
+}